@@ -30,6 +30,8 @@ const ContentCreator = () => {
   });
   const [loading, setLoading] = useState(false);
   const [result, setResult] = useState(null);
+  // Summary and explanation as they are generated
+  const [preview, setPreview] = useState({ summary: '', explanation: '' });
   const [error, setError] = useState('');
   const [success, setSuccess] = useState('');
   const navigate = useNavigate();
@@ -90,6 +92,7 @@ const ContentCreator = () => {
     setLoading(true);
     setError('');
     setSuccess('');
+    setPreview({ summary: '', explanation: '' });
 
     try {
       // Include userId in the request if user is logged in
@@ -97,8 +100,16 @@ const ContentCreator = () => {
         ...formData,
         userId: user?.id || null
       };
-      const response = await apiService.createContent(requestData);
-      setResult(response.data);
+      const response = await apiService.createContentStream(requestData, (event, data) => {
+        if (event === 'summary-delta' || event === 'explanation-delta') {
+          const field = event.replace('-delta', '');
+          setPreview((current) => ({ ...current, [field]: current[field] + data.text }));
+        } else if (event === 'summary' || event === 'explanation') {
+          // The final text replaces the pieces (it differs if the model failed half way)
+          setPreview((current) => ({ ...current, [event]: data.text }));
+        }
+      });
+      setResult(response);
       setSuccess('Content generated successfully! You can now view your interactive learning materials.');
     } catch (error) {
       console.error('Content creation error:', error);
@@ -631,6 +642,32 @@ const ContentCreator = () => {
                     </Button>
                   </motion.div>
                 </motion.div>
+
+                {/* Live preview while the content is generated */}
+                {loading && (preview.summary || preview.explanation) && (
+                  <Box sx={{ mt: 4, textAlign: 'left' }}>
+                    {preview.summary && (
+                      <Box sx={{ mb: 3 }}>
+                        <Typography variant="h6" sx={{ color: colors.text, fontWeight: 600, mb: 1 }}>
+                          Summary
+                        </Typography>
+                        <Typography sx={{ color: colors.textSecondary, whiteSpace: 'pre-wrap' }}>
+                          {preview.summary}
+                        </Typography>
+                      </Box>
+                    )}
+                    {preview.explanation && (
+                      <Box>
+                        <Typography variant="h6" sx={{ color: colors.text, fontWeight: 600, mb: 1 }}>
+                          Explanation
+                        </Typography>
+                        <Typography sx={{ color: colors.textSecondary, whiteSpace: 'pre-wrap' }}>
+                          {preview.explanation}
+                        </Typography>
+                      </Box>
+                    )}
+                  </Box>
+                )}
               </form>
             ) : (
               /* Success State */
@@ -57,10 +57,14 @@ const colors = {
   error: '#ef4444',
 };
 
+const PAGE_SIZE = 30;
+
 const ContentLibrary = () => {
   const [pages, setPages] = useState([]);
   const [filteredPages, setFilteredPages] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [searchTerm, setSearchTerm] = useState('');
   const [selectedCategory, setSelectedCategory] = useState('all');
   const [qrCodeModal, setQrCodeModal] = useState({ open: false, pageId: null, qrCodeUrl: null, loading: false, error: null });
@@ -75,22 +79,26 @@ const ContentLibrary = () => {
     filterContent();
   }, [pages, searchTerm, selectedCategory]);
 
-  const fetchContent = async () => {
+  const fetchContent = async (cursor) => {
+    // Loading more keeps the cards on screen
+    const setBusy = cursor ? setLoadingMore : setLoading;
     try {
-      setLoading(true);
-      if (user && user.id) {
-        const response = await apiService.getPagesByUser(user.id);
-        setPages(response.data || []);
-      } else {
-        // Fallback to all pages if no user is logged in
-        const response = await apiService.getAllPages();
-        setPages(response.data || []);
-      }
+      setBusy(true);
+      const params = { limit: PAGE_SIZE, cursor };
+      // Fall back to all pages if no user is logged in
+      const response = user && user.id
+        ? await apiService.getPagesByUser(user.id, params)
+        : await apiService.getAllPages(params);
+      const items = response.data.items || [];
+      setPages(cursor ? (previous) => [...previous, ...items] : items);
+      setNextCursor(response.data.nextCursor);
     } catch (error) {
       console.error('Error fetching content:', error);
-      setPages([]);
+      if (!cursor) {
+        setPages([]);
+      }
     } finally {
-      setLoading(false);
+      setBusy(false);
     }
   };
 
@@ -822,6 +830,25 @@ const ContentLibrary = () => {
                 </Grid>
               ))}
             </Grid>
+            {nextCursor && (
+              <Box sx={{ display: 'flex', justifyContent: 'center', mt: 4 }}>
+                <Button
+                  variant="outlined"
+                  disabled={loadingMore}
+                  onClick={() => fetchContent(nextCursor)}
+                  sx={{
+                    color: colors.text,
+                    borderColor: colors.subtle,
+                    borderRadius: 3,
+                    px: 4,
+                    textTransform: 'none',
+                    fontWeight: 600,
+                  }}
+                >
+                  Load more
+                </Button>
+              </Box>
+            )}
           </motion.div>
         )}
       </Container>
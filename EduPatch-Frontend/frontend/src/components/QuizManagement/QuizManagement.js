@@ -87,13 +87,19 @@ const QuizManagement = () => {
   const fetchData = async () => {
     try {
       setLoading(true);
-      // Fetch all pages first
-      const pagesResponse = await apiService.getAllPages();
-      setPages(pagesResponse.data);
+      // Fetch all pages first; the summary view skips the page texts
+      const allPages = [];
+      let cursor;
+      do {
+        const pagesResponse = await apiService.getAllPages({ limit: 200, view: 'summary', cursor });
+        allPages.push(...pagesResponse.data.items);
+        cursor = pagesResponse.data.nextCursor;
+      } while (cursor);
+      setPages(allPages);
       
       // Fetch all quizzes for all pages
       const allQuizzes = [];
-      for (const page of pagesResponse.data) {
+      for (const page of allPages) {
         try {
           const quizzesResponse = await apiService.getQuizzesByPage(page.pageId);
           const pageQuizzes = quizzesResponse.data.map(quiz => ({
@@ -34,7 +34,8 @@ export const AuthProvider = ({ children }) => {
         email: response.data.email,    // Use backend email
         name: response.data.name,      // Add name
         role: response.data.role,      // Add role
-        message: response.data.message
+        message: response.data.message,
+        token: response.data.token     // Sent as a Bearer token by api.js
       };
       
       setUser(userData);
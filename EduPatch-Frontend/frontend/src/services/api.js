@@ -10,6 +10,64 @@ const api = axios.create({
   },
 });
 
+// The login token, kept with the signed-in user by AuthContext
+const authHeaders = () => {
+  const token = JSON.parse(localStorage.getItem('user') || 'null')?.token;
+  return token ? { Authorization: `Bearer ${token}` } : {};
+};
+
+api.interceptors.request.use((config) => {
+  Object.assign(config.headers, authHeaders());
+  return config;
+});
+
+// POSTs and reads the server-sent events of a content-generation stream (EventSource can't POST)
+const streamEvents = async (path, data, onEvent) => {
+  const response = await fetch(`${BASE_URL}${path}`, {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json', Accept: 'text/event-stream', ...authHeaders() },
+    body: JSON.stringify(data),
+  });
+  // e.g. a 401/403/500 JSON body from a filter or proxy; rejected requests still arrive as an error event
+  if (!response.headers.get('Content-Type')?.includes('text/event-stream')) {
+    const body = await response.json().catch(() => ({ error: `Request failed with status ${response.status}` }));
+    throw Object.assign(new Error(body.error), { response: { status: response.status, data: body } });
+  }
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder();
+  const result = {};
+  let finished = false;
+  let buffer = '';
+  for (;;) {
+    const { done, value } = await reader.read();
+    if (done) break;
+    buffer += decoder.decode(value, { stream: true });
+    const events = buffer.split(/\r?\n\r?\n/);
+    buffer = events.pop();
+    for (const event of events) {
+      const lines = event.split(/\r?\n/);
+      const name = lines.find((line) => line.startsWith('event:'))?.slice(6).trim() || 'message';
+      const payload = JSON.parse(lines.filter((line) => line.startsWith('data:')).map((line) => line.slice(5)).join('\n'));
+      if (name === 'error') {
+        throw Object.assign(new Error(payload.error), { response: { data: payload } });
+      }
+      if (name === 'page' || name === 'quizzes') {
+        result[name] = payload;
+      } else if (name === 'done') {
+        Object.assign(result, payload);
+        finished = true;
+      }
+      onEvent?.(name, payload);
+    }
+  }
+  // The stream was cut off (e.g. by the server's stream timeout) before the page was saved
+  if (!response.ok || !finished) {
+    const data = { error: 'The content stream ended before the content was saved' };
+    throw Object.assign(new Error(data.error), { response: { status: response.status, data } });
+  }
+  return result;
+};
+
 // All your API endpoints
 export const apiService = {
   // Authentication (connects to UserController)
@@ -24,10 +82,14 @@ export const apiService = {
   
   // Content creation (connects to DemoController)
   createContent: (data) => api.post('/demo/workflow', data),
+  // Same, but onEvent(name, data) sees the summary and explanation while they are written;
+  // resolves with the same body as createContent
+  createContentStream: (data, onEvent) => streamEvents('/demo/workflow/stream', data, onEvent),
   
   // Pages (connects to TextBookPageController)
-  getAllPages: () => api.get('/pages'),
-  getPagesByUser: (userId) => api.get(`/pages/user/${userId}`),
+  // params: { limit, cursor, view: 'summary' }; responds with { items, nextCursor }
+  getAllPages: (params) => api.get('/pages', { params }),
+  getPagesByUser: (userId, params) => api.get(`/pages/user/${userId}`, { params }),
   getPageById: (pageId) => api.get(`/pages/${pageId}`),
   getQRCode: (pageId) => api.get(`/pages/${pageId}/qrcode`, { responseType: 'blob' }),
   
@@ -0,0 +1,43 @@
+package com.example.EduPatch.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Runs content-generation steps. Each step mostly waits on the model or MongoDB,
+     * so a virtual thread per task is cheaper than sizing a platform pool.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService contentGenerationExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("content-gen-", 0).factory());
+    }
+
+    /**
+     * Runs BCrypt hashing. Hashing is pure CPU, so the pool is capped at the core count and a login
+     * storm can't take the CPU from page reads; once the bounded queue is full, new work is rejected
+     * (RejectedExecutionException, answered with 429) instead of piling up.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService passwordHashingExecutor(MeterRegistry meterRegistry,
+                                                   @Value("${password.hash.threads:0}") int threads,
+                                                   @Value("${password.hash.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hash-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+    }
+}
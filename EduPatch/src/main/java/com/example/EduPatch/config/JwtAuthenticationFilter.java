@@ -0,0 +1,60 @@
+package com.example.EduPatch.config;
+
+import com.example.EduPatch.dto.AuthenticatedUser;
+import com.example.EduPatch.service.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <token>} from the token alone.
+ * Requests without a valid token continue anonymously; the authorization rules decide whether that's enough.
+ * The time spent is published as the {@code auth.jwt} timer, tagged with the outcome.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+    private final MeterRegistry meterRegistry;
+
+    public JwtAuthenticationFilter(JwtService jwtService, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Optional<AuthenticatedUser> user = jwtService.verify(header.substring(BEARER_PREFIX.length()).trim());
+        user.ifPresent(authenticated -> {
+            List<SimpleGrantedAuthority> authorities = authenticated.role() != null
+                    ? List.of(new SimpleGrantedAuthority("ROLE_" + authenticated.role()))
+                    : List.of();
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(authenticated, null, authorities));
+        });
+        sample.stop(meterRegistry.timer("auth.jwt", "outcome", user.isPresent() ? "authenticated" : "rejected"));
+
+        chain.doFilter(request, response);
+    }
+}
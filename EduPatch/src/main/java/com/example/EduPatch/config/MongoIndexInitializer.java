@@ -0,0 +1,117 @@
+package com.example.EduPatch.config;
+
+import com.example.EduPatch.service.OfflineCacheService;
+import com.example.EduPatch.service.UserSettingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the entities ({@code @Indexed}, {@code @CompoundIndex}).
+ * Runs in the background once the application is up, so a slow or unreachable database
+ * never delays or fails startup; an index that cannot be built is logged and skipped.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private QueryPlanVerifier queryPlanVerifier;
+
+    @Autowired
+    private UserSettingsService userSettingsService;
+
+    @Autowired
+    private OfflineCacheService offlineCacheService;
+
+    @Value("${app.mongo.ensure-indexes:true}")
+    private boolean ensureIndexes;
+
+    @Value("${app.mongo.verify-query-plans:false}")
+    private boolean verifyQueryPlans;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!ensureIndexes) {
+            return;
+        }
+        Thread.ofVirtual().name("mongo-index-init").start(() -> {
+            migrateData();
+            ensureIndexes();
+            if (verifyQueryPlans) {
+                queryPlanVerifier.findCollectionScans()
+                        .forEach(scan -> log.warn("Query runs as a collection scan: {}", scan));
+            }
+        });
+    }
+
+    /**
+     * Builds every declared index; creating an index that already exists with the same spec is a no-op.
+     * @return The number of indexes that could not be created (at least 1 if the database was unreachable)
+     */
+    public int ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        int failures = 0;
+        for (MongoPersistentEntity<?> entity : documentEntities()) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getType())) {
+                try {
+                    indexOps.createIndex(index);
+                } catch (DataAccessResourceFailureException e) {
+                    log.warn("MongoDB unreachable, skipping index creation: {}", e.getMessage());
+                    return failures + 1;
+                } catch (RuntimeException e) {
+                    // e.g. duplicates that predate a unique index; the rest of the indexes are still worth building
+                    failures++;
+                    log.warn("Could not create index {} on {}: {}", index.getIndexKeys().toJson(),
+                            entity.getCollection(), e.getMessage());
+                }
+            }
+        }
+        return failures;
+    }
+
+    // Data written by earlier versions: duplicate settings must go before the unique index can be built
+    private void migrateData() {
+        try {
+            long removed = userSettingsService.removeDuplicateSettings();
+            long converted = userSettingsService.migrateLegacySettings();
+            if (removed > 0 || converted > 0) {
+                log.info("Removed {} duplicate and converted {} old-format user settings documents", removed, converted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not migrate user settings: {}", e.getMessage());
+        }
+        try {
+            long stripped = offlineCacheService.removeLegacyContent();
+            if (stripped > 0) {
+                log.info("Removed the page content copy from {} offline cache entries", stripped);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not migrate offline cache entries: {}", e.getMessage());
+        }
+    }
+
+    private List<? extends MongoPersistentEntity<?>> documentEntities() {
+        return mongoTemplate.getConverter().getMappingContext().getPersistentEntities().stream()
+                .filter(entity -> entity.isAnnotationPresent(Document.class))
+                .toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.EduPatch.config;
+
+import com.example.EduPatch.entity.ContentChange;
+import com.example.EduPatch.entity.OfflineCache;
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.entity.TextBookPage;
+import com.example.EduPatch.entity.User;
+import com.example.EduPatch.entity.UserSettings;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@code explain} on the filter and sort shape of every repository and template query
+ * and reports the ones MongoDB would answer with a full collection scan. Only meaningful once
+ * the collections and their indexes exist (see {@link MongoIndexInitializer#ensureIndexes()}).
+ */
+@Component
+public class QueryPlanVerifier {
+
+    private record QueryShape(String name, Class<?> entityType, Document filter, Document sort) {
+        QueryShape(String name, Class<?> entityType, Document filter) {
+            this(name, entityType, filter, null);
+        }
+    }
+
+    private static final List<QueryShape> QUERY_SHAPES = List.of(
+            new QueryShape("TextBookPageRepository.findPagesByChapter / findPageRefsByChapter",
+                    TextBookPage.class, new Document("chapter", "sample")),
+            new QueryShape("TextBookPageRepository.findByCreatedBy / findPageRefsByCreatedBy",
+                    TextBookPage.class, new Document("createdBy", "sample")),
+            new QueryShape("TextBookPageService.getPagesAfter",
+                    TextBookPage.class,
+                    new Document("createdBy", "sample").append("_id", new Document("$gt", new ObjectId())),
+                    new Document("_id", 1)),
+            new QueryShape("QuizRepository.findByPageId",
+                    Quiz.class, new Document("pageId", "sample")),
+            new QueryShape("QuizRepository.findByPageIdIn",
+                    Quiz.class, new Document("pageId", new Document("$in", List.of("a", "b")))),
+            new QueryShape("OfflineCacheRepository.findByUserId / findPageRefsByUserId",
+                    OfflineCache.class, new Document("userId", "sample")),
+            new QueryShape("OfflineCacheRepository.findByUserIdAndPageId / deleteByUserIdAndPageId",
+                    OfflineCache.class, new Document("userId", "sample").append("pageId", "sample")),
+            new QueryShape("OfflineCacheRepository.findByPageId / TextBookPageService.deleteDependents",
+                    OfflineCache.class, new Document("pageId", new Document("$in", List.of("a", "b")))),
+            new QueryShape("UserSettingsRepository.findByUserId",
+                    UserSettings.class, new Document("userId", "sample")),
+            new QueryShape("UserRepository.findByEmail",
+                    User.class, new Document("email", "sample@example.com")),
+            new QueryShape("ContentChangeRepository.findBySeqGreaterThanOrderBySeqAsc / ContentSyncService.sync",
+                    ContentChange.class, new Document("seq", new Document("$gt", 0L).append("$lte", 10L)),
+                    new Document("seq", 1)),
+            new QueryShape("ContentChangeRepository.findFirstByOrderBySeqAsc",
+                    ContentChange.class, new Document(), new Document("seq", 1))
+    );
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * @return One description per query whose winning plan contains a COLLSCAN stage; empty when every query uses an index
+     */
+    public List<String> findCollectionScans() {
+        List<String> scans = new ArrayList<>();
+        for (QueryShape shape : QUERY_SHAPES) {
+            Document plan = mongoTemplate.getCollection(mongoTemplate.getCollectionName(shape.entityType()))
+                    .find(shape.filter())
+                    .sort(shape.sort())
+                    .explain();
+            Document queryPlanner = plan.get("queryPlanner", Document.class);
+            if (queryPlanner != null && containsStage(queryPlanner.get("winningPlan"), "COLLSCAN")) {
+                scans.add(shape.name() + " " + shape.filter().toJson());
+            }
+        }
+        return scans;
+    }
+
+    // Plan trees nest through inputStage, inputStages and (with the slot-based engine) queryPlan
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(child -> containsStage(child, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(child -> containsStage(child, stage));
+        }
+        return false;
+    }
+}
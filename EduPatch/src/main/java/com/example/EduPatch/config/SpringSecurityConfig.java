@@ -1,24 +1,69 @@
 package com.example.EduPatch.config;
 
+import com.example.EduPatch.service.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 @Configuration
 @EnableWebSecurity
 public class SpringSecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SpringSecurityConfig.class);
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The one encoder every password goes through. Its cost is calibrated on this machine at startup so a
+     * hash takes about password.hash.target-ms; hashes made with a lower cost are upgraded at the next login.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(@Value("${password.hash.target-ms:250}") long targetMillis,
+                                                 @Value("${password.hash.min-cost:10}") int minCost,
+                                                 @Value("${password.hash.max-cost:14}") int maxCost){
+        int cost = calibrateCost(Duration.ofMillis(targetMillis), minCost, maxCost);
+        log.info("BCrypt cost {} selected for a target of {} ms per hash", cost, targetMillis);
+        return new BCryptPasswordEncoder(cost);
+    }
+
+    // Each cost step doubles the work, so one timed hash at the minimum cost predicts the others
+    static int calibrateCost(Duration target, int minCost, int maxCost) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minCost);
+        probe.encode("calibration"); // warm-up, the first run includes JIT compilation
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        long nanos = System.nanoTime() - start;
+
+        int cost = minCost;
+        while (cost < maxCost && nanos * 2 <= target.toNanos()) {
+            cost++;
+            nanos *= 2;
+        }
+        return cost;
     }
     
     @Bean
@@ -26,16 +71,30 @@ public class SpringSecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                // Admins authenticate with the bearer token returned by /user/login; no server-side session
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService, meterRegistry), UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
+                        // Async results (e.g. password hashing) resume a request that was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // Deleting pages also drops their quizzes and everyone's offline references
+                        .requestMatchers(HttpMethod.DELETE, "/pages/**").authenticated()
                         // Public endpoints for students (no authentication)
                         .requestMatchers("/pages/**").permitAll()  // Allow public access to pages
                         .requestMatchers("/quizzes/**").permitAll() // Allow public access to quizzes
                         .requestMatchers("/demo/workflow").permitAll() // Allow content creation
+                        .requestMatchers("/demo/workflow/stream").permitAll() // Content creation, streamed
+                        .requestMatchers("/demo/workflow/jobs/**").permitAll() // Poll async content creation
                         
                         // Admin-only endpoints
                         .requestMatchers("/user/register").permitAll() // Admin registration
                         .requestMatchers("/user/login").permitAll()    // Admin login
                         .requestMatchers("/user/**").authenticated()   // Other user operations
+                        .requestMatchers("/ingestion/**").authenticated() // Bulk uploads of chapters and books
+                        .requestMatchers("/export/**").authenticated()    // Bulk exports, including every user's offline sets
+                        .requestMatchers("/actuator/health").permitAll() // Liveness probes
+                        .requestMatchers("/actuator/**").authenticated()  // Metrics expose traffic and cache statistics
                         
                         .anyRequest().permitAll() // Allow all other requests for now
                 );
@@ -47,8 +106,10 @@ public class SpringSecurityConfig {
     public CorsConfigurationSource corsConfigurationSource(){
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:3000", "https://edu-patch.vercel.app")); // React dev server
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        // The frontend reads the version from ETag and sends it back in If-Match
+        configuration.setExposedHeaders(Arrays.asList("ETag"));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
@@ -0,0 +1,101 @@
+package com.example.EduPatch.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier (blocking inside {@code synchronized} or native code)
+ * for longer than the threshold, using the JFR {@code jdk.VirtualThreadPinned} event. Every pinning is timed in
+ * {@code jvm.threads.virtual.pinned}; the stack is logged once per call site.
+ */
+@Component
+@ConditionalOnProperty(name = "app.virtual-threads.pinning-monitor", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.example.EduPatch.";
+    private static final int MAX_LOGGED_FRAMES = 16;
+    private static final int MAX_REPORTED_SITES = 100;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.virtual-threads.pinning-threshold:20ms}")
+    private Duration threshold;
+
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private Timer pinned;
+    private RecordingStream stream;
+
+    @PostConstruct
+    void start() {
+        pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .register(meterRegistry);
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+        } catch (RuntimeException e) {
+            // e.g. a JVM built without JFR; the application works the same, just without the report
+            log.warn("Virtual thread pinning monitor unavailable: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        List<RecordedFrame> frames = framesOf(event.getStackTrace());
+        if (frames.isEmpty() || reportedSites.size() >= MAX_REPORTED_SITES || !reportedSites.add(siteOf(frames))) {
+            return;
+        }
+        StringBuilder stack = new StringBuilder();
+        frames.stream().limit(MAX_LOGGED_FRAMES).forEach(frame -> stack.append("\n\tat ").append(describe(frame)));
+        log.warn("Virtual thread pinned to its carrier for {} ms{}", event.getDuration().toMillis(), stack);
+    }
+
+    // The first application frame is what needs fixing; JDK-internal pinning falls back to the top frame
+    private static String siteOf(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .map(VirtualThreadPinningMonitor::describe)
+                .orElseGet(() -> describe(frames.get(0)));
+    }
+
+    private static List<RecordedFrame> framesOf(RecordedStackTrace stackTrace) {
+        return stackTrace != null ? stackTrace.getFrames() : List.of();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")";
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
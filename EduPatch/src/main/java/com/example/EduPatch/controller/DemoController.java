@@ -1,20 +1,17 @@
 package com.example.EduPatch.controller;
 
+import com.example.EduPatch.dto.WorkflowJob;
 import com.example.EduPatch.dto.WorkflowRequest;
-import com.example.EduPatch.entity.Quiz;
-import com.example.EduPatch.entity.TextBookPage;
-import com.example.EduPatch.service.GeminiService;
-import com.example.EduPatch.service.QRCodeService;
-import com.example.EduPatch.service.QuizService;
-import com.example.EduPatch.service.TextBookPageService;
+import com.example.EduPatch.service.ContentWorkflowService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,24 +19,16 @@ import java.util.Map;
 public class DemoController {
 
     @Autowired
-    private TextBookPageService textBookPageService;
-    
-    @Autowired
-    private GeminiService geminiService;
-    
-    @Autowired
-    private QRCodeService qrCodeService;
-    
-    @Autowired
-    private QuizService quizService;
+    private ContentWorkflowService contentWorkflowService;
+
+    @Value("${content.stream-timeout:PT5M}")
+    private Duration streamTimeout;
     
     @PostMapping("/workflow")
-    public ResponseEntity<?> demoWorkflow(@RequestBody WorkflowRequest request) {
+    public ResponseEntity<?> demoWorkflow(@RequestBody WorkflowRequest request,
+                                          @RequestParam(defaultValue = "false") boolean async) {
         try {
             String content = request.getContent();
-            String chapter = request.getChapter();
-            String pageNumber = request.getPageNumber();
-            String userId = request.getUserId();
 
             if (content == null || content.trim().isEmpty()) {
                 Map<String, String> response = new HashMap<>();
@@ -47,45 +36,52 @@ public class DemoController {
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             }
 
-            // Step 1: Generate summary and explanation
-            String summary = geminiService.generateSummary(content);
-            String explanation = geminiService.generateExplanation(content);
-
-            // Step 2: Create a new page
-            TextBookPage page = new TextBookPage();
-            page.setChapter(chapter);
-            page.setPageNumber(pageNumber);
-            page.setContent(content);
-            page.setSummary(summary);
-            page.setExplanation(explanation);
-            page.setCreatedBy(userId); // Set the user who created this content
-
-            TextBookPage savedPage = textBookPageService.createPage(page);
-            
-            // Step 3: Generate multiple quizzes (5 questions)
-            List<Quiz> quizzes = geminiService.generateQuiz(content, savedPage.getPageId());
-            List<Quiz> savedQuizzes = new ArrayList<>();
-            for (Quiz quiz : quizzes) {
-                savedQuizzes.add(quizService.createQuiz(quiz));
+            if (async) {
+                // Return immediately; the client polls the job until the page and quizzes are saved
+                WorkflowJob job = contentWorkflowService.submit(request);
+                Map<String, Object> response = new HashMap<>();
+                response.put("jobId", job.getJobId());
+                response.put("status", job.getStatus());
+                response.put("statusUrl", "/demo/workflow/jobs/" + job.getJobId());
+                return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
             }
-            
-            // Step 4: Generate QR code URL
-            String qrCodeUrl = "/pages/" + savedPage.getPageId() + "/qrcode";
-            
-            // Prepare response
-            Map<String, Object> response = new HashMap<>();
-            response.put("page", savedPage);
-            response.put("quizzes", savedQuizzes);  // Now returns 5 questions
-            response.put("qrCodeUrl", qrCodeUrl);
-            response.put("status", "success");
-            
+
+            // Summary, explanation and quiz generation run concurrently; page and quizzes are saved in batches
+            Map<String, Object> response = contentWorkflowService.run(request).join();
             return new ResponseEntity<>(response, HttpStatus.CREATED);
             
         } catch (Exception e) {
+            Throwable cause = ContentWorkflowService.rootCause(e);
             Map<String, String> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Internal server error: " + e.getMessage());
-            errorResponse.put("type", e.getClass().getSimpleName());
+            errorResponse.put("error", "Internal server error: " + cause.getMessage());
+            errorResponse.put("type", cause.getClass().getSimpleName());
             return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * Runs the same workflow as {@link #demoWorkflow}, streaming the summary and explanation as server-sent
+     * events while they are generated (see {@link GenerationEventStream}).
+     */
+    @PostMapping("/workflow/stream")
+    public ResponseEntity<SseEmitter> streamWorkflow(@RequestBody WorkflowRequest request) {
+        String content = request.getContent();
+        if (content == null || content.trim().isEmpty()) {
+            return new ResponseEntity<>(GenerationEventStream.rejected("Content is required"), HttpStatus.BAD_REQUEST);
+        }
+        GenerationEventStream events = new GenerationEventStream(streamTimeout);
+        events.finish(contentWorkflowService.run(request, events));
+        return new ResponseEntity<>(events.getEmitter(), HttpStatus.OK);
+    }
+
+    @GetMapping("/workflow/jobs/{jobId}")
+    public ResponseEntity<?> getWorkflowJob(@PathVariable String jobId) {
+        WorkflowJob job = contentWorkflowService.getJob(jobId);
+        if (job == null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Job not found");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.EduPatch.controller;
+
+import com.example.EduPatch.entity.OfflineCache;
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.entity.TextBookPage;
+import com.example.EduPatch.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streaming NDJSON exports for backups and analytics jobs. Unlike the list endpoints,
+ * these never materialize a collection in memory.
+ */
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/pages")
+    public ResponseEntity<StreamingResponseBody> exportPages(@RequestParam(defaultValue = "false") boolean gzip) {
+        return export(TextBookPage.class, "pages", gzip);
+    }
+
+    @GetMapping("/quizzes")
+    public ResponseEntity<StreamingResponseBody> exportQuizzes(@RequestParam(defaultValue = "false") boolean gzip) {
+        return export(Quiz.class, "quizzes", gzip);
+    }
+
+    @GetMapping("/offline-caches")
+    public ResponseEntity<StreamingResponseBody> exportOfflineCaches(@RequestParam(defaultValue = "false") boolean gzip) {
+        return export(OfflineCache.class, "offline-caches", gzip);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(Class<?> type, String name, boolean gzip) {
+        String filename = name + ".ndjson" + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> exportService.exportNdjson(type, out, gzip);
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
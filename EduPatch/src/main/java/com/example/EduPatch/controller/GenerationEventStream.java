@@ -0,0 +1,96 @@
+package com.example.EduPatch.controller;
+
+import com.example.EduPatch.service.ContentWorkflowService;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Server-sent events for one content-generation run:
+ * <ul>
+ *   <li>{@code started} right away, so the client has its first byte while the model is still thinking</li>
+ *   <li>{@code summary-delta} / {@code explanation-delta} ({@code {"text": ...}}) while the model writes</li>
+ *   <li>{@code summary} / {@code explanation} with the final text, which replaces the pieces</li>
+ *   <li>{@code page} and {@code quizzes} once saved, then {@code done}; or {@code error} instead</li>
+ * </ul>
+ * A client that goes away doesn't stop the run; the page is still saved.
+ */
+final class GenerationEventStream implements ContentWorkflowService.Progress {
+
+    private final SseEmitter emitter;
+    private volatile boolean open = true;
+
+    GenerationEventStream(Duration timeout) {
+        emitter = new SseEmitter(timeout.toMillis());
+        emitter.onTimeout(() -> open = false);
+        emitter.onError(error -> open = false);
+        send("started", Map.of("status", "running"));
+    }
+
+    /**
+     * @return A stream holding only an {@code error} event, for requests that are rejected up front
+     */
+    static SseEmitter rejected(String error) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", error), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    @Override
+    public void onText(String field, String piece) {
+        send(field + "-delta", Map.of("text", piece));
+    }
+
+    @Override
+    public void onDone(String field, String text) {
+        send(field, Map.of("text", text));
+    }
+
+    /**
+     * Sends the saved page and quizzes, and whatever else is in the response, once the run completes.
+     */
+    void finish(CompletableFuture<Map<String, Object>> run) {
+        run.whenComplete((response, error) -> {
+            if (error != null) {
+                Throwable cause = ContentWorkflowService.rootCause(error);
+                Map<String, String> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Internal server error: " + cause.getMessage());
+                errorResponse.put("type", cause.getClass().getSimpleName());
+                send("error", errorResponse);
+            } else {
+                Map<String, Object> done = new HashMap<>(response);
+                send("page", done.remove("page"));
+                send("quizzes", done.remove("quizzes"));
+                done.putIfAbsent("status", "success");
+                send("done", done);
+            }
+            emitter.complete();
+        });
+    }
+
+    private void send(String event, Object data) {
+        if (!open) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Client gone or emitter timed out
+            open = false;
+        }
+    }
+}
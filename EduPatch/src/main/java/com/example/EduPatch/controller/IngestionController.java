@@ -0,0 +1,87 @@
+package com.example.EduPatch.controller;
+
+import com.example.EduPatch.dto.AuthenticatedUser;
+import com.example.EduPatch.dto.WorkflowRequest;
+import com.example.EduPatch.entity.IngestionJob;
+import com.example.EduPatch.service.IngestionService;
+import com.fasterxml.jackson.core.JacksonException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk upload of whole chapters or books. Uploads are processed in the background; the job returned
+ * by {@code POST /ingestion/jobs} is polled for progress and resumed if some pages failed.
+ */
+@RestController
+@RequestMapping("/ingestion")
+public class IngestionController {
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    /**
+     * Accepts a JSON array or NDJSON of {@code {content, chapter, pageNumber}}, or a zip of {@code .txt}
+     * files (see {@link IngestionService#readUpload}).
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> createJob(@AuthenticationPrincipal AuthenticatedUser admin,
+                                       @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                       @RequestParam(required = false) String chapter,
+                                       InputStream body) {
+        try {
+            List<WorkflowRequest> pages = ingestionService.readUpload(body, contentType, chapter);
+            IngestionJob job = ingestionService.submit(pages, admin.userId());
+            Map<String, Object> response = new HashMap<>();
+            response.put("job", job);
+            response.put("statusUrl", "/ingestion/jobs/" + job.getJobId());
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException | JacksonException e) {
+            return new ResponseEntity<>(Map.of("error", "Invalid upload: " + e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            return new ResponseEntity<>(Map.of("error", "Could not read the upload"), HttpStatus.BAD_REQUEST);
+        } catch (DataAccessException e) {
+            return new ResponseEntity<>(Map.of("error", "Failed to save the upload: " + e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@AuthenticationPrincipal AuthenticatedUser admin, @PathVariable String jobId) {
+        IngestionJob job = ingestionService.getJob(jobId);
+        if (job == null || !admin.userId().equals(job.getCreatedBy())) {
+            return new ResponseEntity<>(Map.of("error", "job not found"), HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    /**
+     * Generates the pages that failed or were never written; pages already saved are kept.
+     */
+    @PostMapping("/jobs/{jobId}/resume")
+    public ResponseEntity<?> resumeJob(@AuthenticationPrincipal AuthenticatedUser admin, @PathVariable String jobId) {
+        IngestionJob existing = ingestionService.getJob(jobId);
+        if (existing == null || !admin.userId().equals(existing.getCreatedBy())) {
+            return new ResponseEntity<>(Map.of("error", "job not found"), HttpStatus.NOT_FOUND);
+        }
+        try {
+            IngestionJob job = ingestionService.resume(jobId);
+            if (job == null) {
+                return new ResponseEntity<>(Map.of("error", "job not found"), HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.CONFLICT);
+        }
+    }
+}
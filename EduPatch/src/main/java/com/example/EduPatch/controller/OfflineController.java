@@ -1,18 +1,29 @@
 package com.example.EduPatch.controller;
 
-import com.example.EduPatch.entity.TextBookPage;
-import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.dto.OfflineBundle;
+import com.example.EduPatch.dto.OfflinePageEntry;
+import com.example.EduPatch.service.ContentSyncService;
+import com.example.EduPatch.service.OfflineBundleService;
+import com.example.EduPatch.service.OfflineCacheService;
 import com.example.EduPatch.service.TextBookPageService;
-import com.example.EduPatch.service.QuizService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/offline")
@@ -20,43 +31,166 @@ import java.util.Optional;
 public class OfflineController {
 
     @Autowired
-    private TextBookPageService textBookPageService;
+    private OfflineBundleService offlineBundleService;
+
+    @Autowired
+    private OfflineCacheService offlineCacheService;
 
     @Autowired
-    private QuizService quizService;
+    private ContentSyncService contentSyncService;
+
+    @Autowired
+    private TextBookPageService textBookPageService;
 
     /**
-     * Get complete page data including quizzes for offline caching
+     * Get complete page data including quizzes for offline caching.
+     * The bundle is prebuilt and gzipped; its ETag changes only when the page or its quizzes change,
+     * so revalidating clients mostly get a 304.
      */
     @GetMapping("/page/{pageId}")
-    public ResponseEntity<?> getCompletePageData(@PathVariable String pageId) {
+    public ResponseEntity<?> getCompletePageData(@PathVariable String pageId,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            // Get page data
-            Optional<TextBookPage> pageOptional = textBookPageService.getPageById(pageId);
-            if (!pageOptional.isPresent()) {
+            Optional<OfflineBundle> bundle = offlineBundleService.getBundle(pageId);
+            if (!bundle.isPresent()) {
                 Map<String, String> response = new HashMap<>();
                 response.put("error", "Page not found");
                 return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
             }
 
-            TextBookPage page = pageOptional.get();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setCacheControl(CacheControl.noCache());
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+            // Serve the stored bytes as-is; only clients without gzip support pay for decompression.
+            // Each encoding is a distinct representation, so each gets its own ETag.
+            byte[] body;
+            if (acceptsGzip(acceptEncoding)) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                headers.setETag("\"" + bundle.get().version() + "-gzip\"");
+                body = bundle.get().gzipped();
+            } else {
+                headers.setETag("\"" + bundle.get().version() + "\"");
+                body = OfflineBundleService.gunzip(bundle.get().gzipped());
+            }
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+
+        } catch (Exception e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to fetch complete page data");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Download a whole chapter for offline use as one gzipped NDJSON stream: a manifest with every
+     * page's version first, then the pages themselves. Clients pass the versions they already hold in
+     * {@code have} and only receive pages that changed.
+     */
+    @GetMapping("/chapter/{chapter}")
+    public ResponseEntity<?> getChapterPack(@PathVariable String chapter,
+                                            @RequestParam(required = false) Set<String> have,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        List<OfflinePageEntry> entries = offlineBundleService.loadChapter(chapter);
+        if (entries.isEmpty()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Chapter not found");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+
+        Set<String> knownVersions = have != null ? have : Set.of();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : new BufferedOutputStream(out, 64 * 1024);
+            offlineBundleService.writeChapterPack(chapter, entries, knownVersions, target);
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            target.flush();
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        headers.setCacheControl(CacheControl.noCache());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
 
-            // Get quizzes for this page
-            List<Quiz> quizzes = quizService.getQuizzesByPageId(pageId);
+    /**
+     * Whether the client's Accept-Encoding allows gzip: named with a non-zero q-value, or covered by
+     * {@code *} without being named. {@code gzip;q=0} and {@code identity} alone get the plain body.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean wildcard = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = quality(parts) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = accepted;
+            } else if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return gzip != null ? gzip : wildcard;
+    }
+
+    // The q parameter of one Accept-Encoding element; 1 when absent, 0 when unreadable
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
 
-            // Combine everything for offline storage
-            Map<String, Object> completeData = new HashMap<>();
-            completeData.put("page", page);
-            completeData.put("quizzes", quizzes);
-            completeData.put("cachedAt", System.currentTimeMillis());
-            completeData.put("version", "1.0");
+    /**
+     * Mark a page as kept offline by a user, so it is included in their sync.
+     */
+    @PutMapping("/cache/{userId}/{pageId}")
+    public ResponseEntity<?> addToOfflineCache(@PathVariable String userId, @PathVariable String pageId) {
+        if (!textBookPageService.getPageById(pageId).isPresent()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Page not found");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(offlineCacheService.downloadPage(userId, pageId), HttpStatus.OK);
+    }
 
-            return new ResponseEntity<>(completeData, HttpStatus.OK);
+    @DeleteMapping("/cache/{userId}/{pageId}")
+    public ResponseEntity<?> removeFromOfflineCache(@PathVariable String userId, @PathVariable String pageId) {
+        if (offlineCacheService.removePage(userId, pageId)) {
+            return ResponseEntity.ok(Map.of("message", "Page removed from offline cache"));
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Page is not cached offline"));
+    }
 
+    /**
+     * Incremental sync: returns the user's offline pages that changed or were deleted since {@code token}.
+     * Without a token (or with one older than the changelog retention) the full set is returned.
+     */
+    @GetMapping("/sync/{userId}")
+    public ResponseEntity<?> sync(@PathVariable String userId, @RequestParam(required = false) Long token) {
+        try {
+            return ResponseEntity.ok(contentSyncService.sync(userId, token));
         } catch (Exception e) {
             Map<String, String> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Failed to fetch complete page data");
+            errorResponse.put("error", "Failed to sync offline content");
             return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+}
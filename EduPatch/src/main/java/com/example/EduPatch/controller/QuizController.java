@@ -1,5 +1,6 @@
 package com.example.EduPatch.controller;
 
+import com.example.EduPatch.dto.QuizBatchRequest;
 import com.example.EduPatch.entity.Quiz;
 import com.example.EduPatch.service.QuizService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,6 +36,30 @@ public class QuizController {
         Quiz savedQuiz = quizService.createQuiz(quiz);
         return new ResponseEntity<>(savedQuiz, HttpStatus.CREATED);
     }
+    /**
+     * Writes a page's whole question set in one round trip; with "replace" the previous set is swapped out atomically.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createQuizzes(@RequestBody QuizBatchRequest request) {
+        List<Quiz> quizzes = request.getQuizzes();
+        if (quizzes == null || quizzes.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "At least one quiz is required"));
+        }
+        if (request.isReplace() && request.getPageId() == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "pageId is required to replace a quiz set"));
+        }
+
+        List<Quiz> savedQuizzes;
+        if (request.isReplace()) {
+            savedQuizzes = quizService.replaceQuizzesForPage(request.getPageId(), quizzes);
+        } else {
+            if (request.getPageId() != null) {
+                quizzes.forEach(quiz -> quiz.setPageId(request.getPageId()));
+            }
+            savedQuizzes = quizService.createQuizzes(quizzes);
+        }
+        return new ResponseEntity<>(savedQuizzes, HttpStatus.CREATED);
+    }
     @PutMapping("/{quizId}")
     public ResponseEntity<?> updateQuiz(@PathVariable String quizId, @RequestBody Quiz quizDetails) {
         Quiz updatedQuiz = quizService.updateQuiz(quizId, quizDetails);
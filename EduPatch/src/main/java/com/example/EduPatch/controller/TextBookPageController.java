@@ -1,38 +1,50 @@
 package com.example.EduPatch.controller;
 
-import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.dto.QRCodeImage;
 import com.example.EduPatch.entity.TextBookPage;
-import com.example.EduPatch.service.GeminiService;
+import com.example.EduPatch.service.ContentWorkflowService;
 import com.example.EduPatch.service.QRCodeService;
-import com.example.EduPatch.service.QuizService;
+import com.example.EduPatch.service.QRCodeSheetService;
 import com.example.EduPatch.service.TextBookPageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/pages")
 public class TextBookPageController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private TextBookPageService textBookPageService;
     
-    @Autowired
-    private GeminiService geminiService;
-    
     @Autowired
     private QRCodeService qrCodeService;
-    
+
     @Autowired
-    private QuizService quizService;
+    private QRCodeSheetService qrCodeSheetService;
+
+    @Autowired
+    private ContentWorkflowService contentWorkflowService;
+
+    @Value("${content.stream-timeout:PT5M}")
+    private Duration streamTimeout;
 
     @GetMapping("/{pageId}")
     public ResponseEntity<?> getPageById(@PathVariable String pageId) {
@@ -52,24 +64,55 @@ public class TextBookPageController {
         return new ResponseEntity<>(savedPage, HttpStatus.CREATED);
     }
 
+    /**
+     * Lists pages as a keyset-paginated {@code {items, nextCursor}} object of at most {@code limit}
+     * pages (default 50). {@code view=summary} leaves out content, summary and explanation.
+     */
     @GetMapping
-    public ResponseEntity<List<TextBookPage>> getAllPages() {
-        List<TextBookPage> all = textBookPageService.getAllPages();
+    public ResponseEntity<?> getAllPages(@RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "full") String view) {
+        return listPages(null, limit, cursor, view);
+    }
 
-        if (all != null && !all.isEmpty()) {
-            return ResponseEntity.ok(all);
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<?> getPagesByUser(@PathVariable String userId,
+                                            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "full") String view) {
+        return listPages(userId, limit, cursor, view);
+    }
+
+    private ResponseEntity<?> listPages(String createdBy, int limit, String cursor, String view) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        boolean summaryOnly = "summary".equalsIgnoreCase(view);
+        try {
+            return ResponseEntity.ok(textBookPageService.getPagesAfter(createdBy, cursor, limit, summaryOnly));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
-    @GetMapping("/user/{userId}")
-    public ResponseEntity<List<TextBookPage>> getPagesByUser(@PathVariable String userId) {
-        List<TextBookPage> pages = textBookPageService.getPagesByCreatedBy(userId);
+    @DeleteMapping("/{pageId}")
+    public ResponseEntity<?> deletePage(@PathVariable String pageId) {
+        if (textBookPageService.deletePage(pageId)) {
+            return ResponseEntity.ok(Map.of("message", "Page deleted successfully"));
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Page not found with id: " + pageId));
+    }
 
-        if (pages != null && !pages.isEmpty()) {
-            return ResponseEntity.ok(pages);
+    @DeleteMapping("/chapter/{chapter}")
+    public ResponseEntity<?> deletePagesByChapter(@PathVariable String chapter) {
+        long deleted = textBookPageService.deletePagesByChapter(chapter);
+        if (deleted == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No pages found for chapter: " + chapter));
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        return ResponseEntity.ok(Map.of("message", "Chapter deleted successfully", "deletedPages", deleted));
     }
     
     // New endpoints for AI content generation
@@ -86,41 +129,85 @@ public class TextBookPageController {
         TextBookPage page = pageOptional.get();
         String content = request.getOrDefault("content", page.getContent());
         
-        // Generate summary and explanation using Gemini API
-        String summary = geminiService.generateSummary(content);
-        String explanation = geminiService.generateExplanation(content);
-        
-        // Update the page with generated content
-        page.setSummary(summary);
-        page.setExplanation(explanation);
-        TextBookPage updatedPage = textBookPageService.updatePage(pageId, page);
-        
-        // Generate a quiz for the page
-        Quiz quiz = (Quiz) geminiService.generateQuiz(content, pageId);
-        quizService.createQuiz(quiz);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("page", updatedPage);
-        response.put("quiz", quiz);
+        // Summary, explanation and quiz generation run concurrently; the quiz set is replaced in a single write
+        Map<String, Object> response = contentWorkflowService.regenerate(page, content, null).join();
         
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    /**
+     * Like {@link #generateContent}, but streams the summary and explanation as server-sent events while
+     * they are generated (see {@link GenerationEventStream}).
+     */
+    @PostMapping("/{pageId}/generate-content/stream")
+    public ResponseEntity<SseEmitter> streamGeneratedContent(@PathVariable String pageId, @RequestBody Map<String, String> request) {
+        Optional<TextBookPage> pageOptional = textBookPageService.getPageById(pageId);
+        if (!pageOptional.isPresent()) {
+            return new ResponseEntity<>(GenerationEventStream.rejected("Page not found"), HttpStatus.NOT_FOUND);
+        }
+        TextBookPage page = pageOptional.get();
+        String content = request.getOrDefault("content", page.getContent());
+
+        GenerationEventStream events = new GenerationEventStream(streamTimeout);
+        events.finish(contentWorkflowService.regenerate(page, content, events));
+        return new ResponseEntity<>(events.getEmitter(), HttpStatus.OK);
+    }
     
     @GetMapping("/{pageId}/qrcode")
-    public ResponseEntity<byte[]> getQRCode(@PathVariable String pageId) {
+    public ResponseEntity<byte[]> getQRCode(@PathVariable String pageId,
+                                            @RequestParam(defaultValue = "" + QRCodeService.DEFAULT_SIZE) int size) {
+        if (size < QRCodeService.MIN_SIZE || size > QRCodeService.MAX_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         try {
-            // Generate QR code with frontend URL
-            byte[] qrCodeImage = qrCodeService.generateQRCode(pageId);
+            // Served from the render cache; the ETag lets Spring answer If-None-Match with a 304
+            QRCodeImage qrCodeImage = qrCodeService.getQRCode(pageId, size);
             
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.IMAGE_PNG);
-            headers.setContentLength(qrCodeImage.length);
+            headers.setContentLength(qrCodeImage.bytes().length);
             headers.setContentDispositionFormData("attachment", "qr-" + pageId + ".png");
+            headers.setETag(qrCodeImage.etag());
+            headers.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
             
-            return new ResponseEntity<>(qrCodeImage, headers, HttpStatus.OK);
+            return new ResponseEntity<>(qrCodeImage.bytes(), headers, HttpStatus.OK);
             
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * Streams a printable sheet of QR stickers for a whole chapter or for all pages of one admin.
+     */
+    @GetMapping("/qrcodes/sheet")
+    public ResponseEntity<?> getQRCodeSheet(@RequestParam(required = false) String chapter,
+                                            @RequestParam(required = false) String createdBy,
+                                            @RequestParam(defaultValue = "pdf") String format) {
+        if ((chapter == null) == (createdBy == null)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Exactly one of 'chapter' or 'createdBy' is required"));
+        }
+
+        QRCodeSheetService.Format sheetFormat;
+        try {
+            sheetFormat = QRCodeSheetService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + format));
+        }
+
+        List<TextBookPage> pages = chapter != null
+                ? textBookPageService.getPageRefsByChapter(chapter)
+                : textBookPageService.getPageRefsByCreatedBy(createdBy);
+        if (pages.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No pages found"));
+        }
+
+        boolean pdf = sheetFormat == QRCodeSheetService.Format.PDF;
+        StreamingResponseBody body = out -> qrCodeSheetService.writeSheet(pages, sheetFormat, out);
+        return ResponseEntity.ok()
+                .contentType(pdf ? MediaType.APPLICATION_PDF : MediaType.IMAGE_PNG)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"qr-stickers." + (pdf ? "pdf" : "png") + "\"")
+                .body(body);
+    }
 }
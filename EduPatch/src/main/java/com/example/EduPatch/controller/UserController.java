@@ -1,20 +1,31 @@
 package com.example.EduPatch.controller;
 
+import com.example.EduPatch.dto.AuthenticatedUser;
 import com.example.EduPatch.entity.User;
 import com.example.EduPatch.entity.UserSettings;
+import com.example.EduPatch.service.ContentWorkflowService;
+import com.example.EduPatch.service.JwtService;
+import com.example.EduPatch.service.LoginRateLimiter;
+import com.example.EduPatch.service.PasswordHashingService;
 import com.example.EduPatch.service.UserService;
 import com.example.EduPatch.service.UserSettingsService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/user")
@@ -29,103 +40,133 @@ public class UserController {
     
     @Autowired
     private UserSettingsService userSettingsService;
-    
-    private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody User user){
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody User user){
         try {
             if(userService.getUserByEmail(user.getEmail()).isPresent()){
                 Map<String, String> response = new HashMap<>();
                 response.put("Error", "email already in use");
-                return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+                return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
             }
             
             // Hash the password before saving
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
-            user.setRole("ADMIN");
-            
-            User savedUser = userService.registerUser(user);
-            
-            // Create default settings for new user
-            UserSettings defaultSettings = new UserSettings();
-            defaultSettings.setUserId(savedUser.getId());
-            userSettingsService.createSettings(defaultSettings);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Registration successful");
-            response.put("id", savedUser.getId());
-            response.put("email", savedUser.getEmail());
-            response.put("name", savedUser.getName());
-            response.put("role", savedUser.getRole());
-            
-            return new ResponseEntity<>(response, HttpStatus.CREATED);
+            return passwordHashingService.encode(user.getPassword()).<ResponseEntity<?>>thenApply(hash -> {
+                user.setPassword(hash);
+                user.setRole("ADMIN");
+                
+                User savedUser = userService.registerUser(user);
+                
+                // Create default settings for new user
+                UserSettings defaultSettings = new UserSettings();
+                defaultSettings.setUserId(savedUser.getId());
+                userSettingsService.createSettings(defaultSettings);
+                
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Registration successful");
+                response.put("id", savedUser.getId());
+                response.put("email", savedUser.getEmail());
+                response.put("name", savedUser.getName());
+                response.put("role", savedUser.getRole());
+                putAccessToken(response, savedUser);
+                
+                return new ResponseEntity<>(response, HttpStatus.CREATED);
+            }).exceptionally(e -> hashingFailure(e, "Error", "Registration failed: "));
         } catch (Exception e) {
-            Map<String, String> response = new HashMap<>();
-            response.put("Error", "Registration failed: " + e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(hashingFailure(e, "Error", "Registration failed: "));
         }
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody Map<String , String>loginRequest){
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody Map<String , String>loginRequest, HttpServletRequest request){
         try {
             String email = loginRequest.get("email");
             String password = loginRequest.get("password");
             
             System.out.println("Login attempt - Email: " + email);
             
+            // Throttled before the lookup and the hash compare, so a flood of attempts costs neither
+            Optional<Duration> retryAfter = loginRateLimiter.tryAttempt(request.getRemoteAddr(), email);
+            if (retryAfter.isPresent()) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.get().toSeconds() + 1)))
+                    .body(Map.of("error", "Too many login attempts, please try again later")));
+            }
+            
             Optional<User> userOptional = userService.getUserByEmail(email);
             
             if (userOptional.isPresent()) {
                 User user = userOptional.get();
+                String storedPassword = user.getPassword();
                 
-                // Check if password is already hashed (starts with $2a$) or plain text
-                boolean passwordMatches;
-                if (user.getPassword().startsWith("$2a$")) {
+                // Check if password is already hashed or plain text
+                CompletableFuture<Boolean> passwordMatches;
+                if (PasswordHashingService.isHashed(storedPassword)) {
                     // Password is already hashed, use BCrypt comparison
-                    passwordMatches = passwordEncoder.matches(password, user.getPassword());
+                    passwordMatches = passwordHashingService.matches(password, storedPassword);
                 } else {
                     // Password is plain text (existing users), compare directly
-                    passwordMatches = password.equals(user.getPassword());
-                    
-                    // If login successful, update to hashed password for future
-                    if (passwordMatches) {
-                        user.setPassword(passwordEncoder.encode(password));
-                        userService.updateUser(user);
-                    }
+                    passwordMatches = CompletableFuture.completedFuture(password.equals(storedPassword));
                 }
                 
-                if (passwordMatches) {
-                    System.out.println("Password match successful!");
-                    
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("message", "Login successful");
-                    response.put("userId", user.getId());
-                    response.put("email", user.getEmail());
-                    response.put("name", user.getName());
-                    response.put("role", user.getRole());
-                    return new ResponseEntity<>(response, HttpStatus.OK);
-                } else {
-                    System.out.println("Password match failed!");
-                    Map<String, String> response = new HashMap<>();
-                    response.put("error", "Invalid password");
-                    return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-                }
+                return passwordMatches.<ResponseEntity<?>>thenApply(matches -> {
+                    if (matches) {
+                        System.out.println("Password match successful!");
+                        loginRateLimiter.loginSucceeded(email);
+                        // Hash plain-text passwords and upgrade hashes made with an older cost, for future logins
+                        if (!PasswordHashingService.isHashed(storedPassword) || passwordHashingService.needsRehash(storedPassword)) {
+                            rehashInBackground(user.getId(), storedPassword, password);
+                        }
+                        
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("message", "Login successful");
+                        response.put("userId", user.getId());
+                        response.put("email", user.getEmail());
+                        response.put("name", user.getName());
+                        response.put("role", user.getRole());
+                        putAccessToken(response, user);
+                        return new ResponseEntity<>(response, HttpStatus.OK);
+                    } else {
+                        System.out.println("Password match failed!");
+                        Map<String, String> response = new HashMap<>();
+                        response.put("error", "Invalid password");
+                        return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+                    }
+                }).exceptionally(e -> hashingFailure(e, "error", "Login failed: "));
             } else {
                 Map<String, String> response = new HashMap<>();
                 response.put("error", "User not found");
-                return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+                return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED));
             }
         } catch (Exception e) {
-            Map<String, String> response = new HashMap<>();
-            response.put("error", "Login failed: " + e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(hashingFailure(e, "error", "Login failed: "));
+        }
+    }
+
+    // Best effort: when the hashing pool is busy the upgrade simply happens at a later login
+    private void rehashInBackground(String userId, String storedPassword, String rawPassword) {
+        try {
+            passwordHashingService.encode(rawPassword)
+                .thenAccept(newHash -> userService.replacePasswordHash(userId, storedPassword, newHash));
+        } catch (RejectedExecutionException e) {
+            // Skipped, see above
         }
     }
 
     @GetMapping("/id/{id}")
-    public ResponseEntity<?> getUserById(@PathVariable String id) {
+    public ResponseEntity<?> getUserById(@AuthenticationPrincipal AuthenticatedUser caller, @PathVariable String id) {
+        if (!isAccountOf(caller, id)) {
+            return forbidden();
+        }
         Optional<User> userOptional = userService.getUserById(id);
         if (userOptional.isPresent()) {
             return new ResponseEntity<>(userOptional.get(), HttpStatus.OK);
@@ -136,40 +177,58 @@ public class UserController {
         }
     }
 
-    @GetMapping("/all-users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return new ResponseEntity<>(users, HttpStatus.OK);
-    }
-    
-    // Update user profile
+    // Update user profile (unknown fields are ignored)
     @PutMapping("/profile/{userId}")
-    public ResponseEntity<?> updateProfile(@PathVariable String userId, @RequestBody Map<String, String> profileData) {
+    public ResponseEntity<?> updateProfile(@AuthenticationPrincipal AuthenticatedUser caller,
+                                           @PathVariable String userId, @RequestBody Map<String, String> profileData) {
+        if (!isAccountOf(caller, userId)) {
+            return forbidden();
+        }
+        Map<String, String> changes = new HashMap<>(profileData);
+        changes.keySet().retainAll(UserService.PROFILE_FIELDS);
+        return applyProfileChanges(userId, changes, null);
+    }
+
+    /**
+     * Changes only the fields present in the body (name, email, phone, avatar) with a single $set.
+     * Send the last seen version in If-Match to get 412 instead of overwriting a concurrent edit.
+     */
+    @PatchMapping("/profile/{userId}")
+    public ResponseEntity<?> patchProfile(@AuthenticationPrincipal AuthenticatedUser caller,
+                                          @PathVariable String userId,
+                                          @RequestBody Map<String, String> changes,
+                                          @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        if (!isAccountOf(caller, userId)) {
+            return forbidden();
+        }
+        try {
+            return applyProfileChanges(userId, changes, parseVersion(ifMatch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> applyProfileChanges(String userId, Map<String, String> changes, Long expectedVersion) {
         try {
-            Optional<User> userOptional = userService.getUserById(userId);
-            if (!userOptional.isPresent()) {
+            Optional<User> updatedUser = userService.updateProfile(userId, changes, expectedVersion);
+            if (updatedUser.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "User not found"));
             }
-            
-            User user = userOptional.get();
-            if (profileData.containsKey("name")) {
-                user.setName(profileData.get("name"));
-            }
-            if (profileData.containsKey("email")) {
-                user.setEmail(profileData.get("email"));
-            }
-            if (profileData.containsKey("phone")) {
-                // Add phone field to User entity if needed
-            }
-            
-            User updatedUser = userService.updateUser(user);
-            
+
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Profile updated successfully");
-            response.put("user", updatedUser);
-            
-            return ResponseEntity.ok(response);
+            response.put("user", profileOf(updatedUser.get()));
+
+            return ResponseEntity.ok().eTag(etagOf(updatedUser.get().getVersion())).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(Map.of("error", "Profile was changed elsewhere, reload and try again"));
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "email already in use"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Failed to update profile: " + e.getMessage()));
@@ -178,41 +237,58 @@ public class UserController {
 
     // Change password
     @PutMapping("/password/{userId}")
-    public ResponseEntity<?> changePassword(@PathVariable String userId, @RequestBody Map<String, String> passwordData) {
+    public CompletableFuture<ResponseEntity<?>> changePassword(@AuthenticationPrincipal AuthenticatedUser caller,
+                                                               @PathVariable String userId, @RequestBody Map<String, String> passwordData) {
+        if (!isAccountOf(caller, userId)) {
+            return CompletableFuture.completedFuture(forbidden());
+        }
         try {
-            Optional<User> userOptional = userService.getUserById(userId);
-            if (!userOptional.isPresent()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "User not found"));
+            Optional<String> passwordHash = userService.getPasswordHash(userId);
+            if (!passwordHash.isPresent()) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "User not found")));
             }
             
-            User user = userOptional.get();
             String currentPassword = passwordData.get("currentPassword");
             String newPassword = passwordData.get("newPassword");
             
-            // Verify current password
-            if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", "Current password is incorrect"));
-            }
-            
-            // Update password
-            user.setPassword(passwordEncoder.encode(newPassword));
-            userService.updateUser(user);
-            
-            return ResponseEntity.ok(Map.of("message", "Password updated successfully"));
+            // Verify current password, then hash and store the new one
+            return passwordHashingService.matches(currentPassword, passwordHash.get()).thenCompose(matches -> {
+                if (!matches) {
+                    return CompletableFuture.<ResponseEntity<?>>completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "Current password is incorrect")));
+                }
+                return passwordHashingService.encode(newPassword).<ResponseEntity<?>>thenApply(newHash -> {
+                    userService.updatePassword(userId, newHash);
+                    return ResponseEntity.ok(Map.of("message", "Password updated successfully"));
+                });
+            }).exceptionally(e -> hashingFailure(e, "error", "Failed to change password: "));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Failed to change password: " + e.getMessage()));
+            return CompletableFuture.completedFuture(hashingFailure(e, "error", "Failed to change password: "));
+        }
+    }
+
+    // A saturated hashing pool is reported as 429 so clients back off and retry; anything else is a 500
+    private static ResponseEntity<?> hashingFailure(Throwable error, String errorKey, String message) {
+        Throwable cause = ContentWorkflowService.rootCause(error);
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of(errorKey, "Too many password requests right now, please retry in a moment"));
         }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body(Map.of(errorKey, message + cause.getMessage()));
     }
 
     // Get user settings
     @GetMapping("/settings/{userId}")
-    public ResponseEntity<?> getUserSettings(@PathVariable String userId) {
+    public ResponseEntity<?> getUserSettings(@AuthenticationPrincipal AuthenticatedUser caller, @PathVariable String userId) {
+        if (!isAccountOf(caller, userId)) {
+            return forbidden();
+        }
         try {
             UserSettings settings = userSettingsService.getUserSettings(userId);
-            return ResponseEntity.ok(settings);
+            return ResponseEntity.ok().eTag(etagOf(settings.getVersion())).body(settings);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Failed to get settings: " + e.getMessage()));
@@ -221,15 +297,108 @@ public class UserController {
 
     // Update user settings
     @PutMapping("/settings/{userId}")
-    public ResponseEntity<?> updateUserSettings(@PathVariable String userId, @RequestBody UserSettings settings) {
+    public ResponseEntity<?> updateUserSettings(@AuthenticationPrincipal AuthenticatedUser caller,
+                                                @PathVariable String userId,
+                                                @RequestBody UserSettings settings,
+                                                @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        if (!isAccountOf(caller, userId)) {
+            return forbidden();
+        }
         try {
             settings.setUserId(userId);
-            UserSettings updatedSettings = userSettingsService.updateUserSettings(settings);
-            return ResponseEntity.ok(Map.of("message", "Settings updated successfully", "settings", updatedSettings));
+            UserSettings updatedSettings = userSettingsService.updateUserSettings(settings, parseVersion(ifMatch));
+            return ResponseEntity.ok().eTag(etagOf(updatedSettings.getVersion()))
+                .body(Map.of("message", "Settings updated successfully", "settings", updatedSettings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return settingsConflict(userId);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Failed to update settings: " + e.getMessage()));
         }
     }
+
+    /**
+     * Changes only the settings present in the body, e.g. {"appearance": {"darkMode": true}}.
+     * Send the last seen version in If-Match to get 412 (with the current settings) instead of
+     * overwriting a concurrent edit; without it, edits to different settings never clobber each other.
+     */
+    @PatchMapping("/settings/{userId}")
+    public ResponseEntity<?> patchUserSettings(@AuthenticationPrincipal AuthenticatedUser caller,
+                                               @PathVariable String userId,
+                                               @RequestBody Map<String, Map<String, Object>> changes,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        if (!isAccountOf(caller, userId)) {
+            return forbidden();
+        }
+        try {
+            UserSettings updatedSettings = userSettingsService.patchUserSettings(userId, changes, parseVersion(ifMatch));
+            return ResponseEntity.ok().eTag(etagOf(updatedSettings.getVersion()))
+                .body(Map.of("message", "Settings updated successfully", "settings", updatedSettings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return settingsConflict(userId);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to update settings: " + e.getMessage()));
+        }
+    }
+
+    // A token only grants access to the account it was issued for
+    private static boolean isAccountOf(AuthenticatedUser caller, String userId) {
+        return caller != null && caller.userId().equals(userId);
+    }
+
+    private static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+            .body(Map.of("error", "Not allowed to access another user's account"));
+    }
+
+    private ResponseEntity<?> settingsConflict(String userId) {
+        UserSettings current = userSettingsService.getUserSettings(userId);
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etagOf(current.getVersion()))
+            .body(Map.of("error", "Settings were changed elsewhere", "settings", current));
+    }
+
+    // Sent as "Authorization: Bearer <token>" on every /user/** request
+    private void putAccessToken(Map<String, Object> response, User user) {
+        response.put("token", jwtService.issueToken(user));
+        response.put("tokenType", "Bearer");
+        response.put("expiresIn", jwtService.getTokenTtl().toSeconds());
+    }
+
+    private static Map<String, Object> profileOf(User user) {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("id", user.getId());
+        profile.put("name", user.getName());
+        profile.put("email", user.getEmail());
+        profile.put("phone", user.getPhone());
+        profile.put("avatar", user.getAvatar());
+        profile.put("role", user.getRole());
+        profile.put("version", user.getVersion() != null ? user.getVersion() : 0L);
+        return profile;
+    }
+
+    private static String etagOf(Long version) {
+        return "\"" + (version != null ? version : 0L) + "\"";
+    }
+
+    // Accepts the ETag as sent back by browsers ("3", W/"3") or a bare number; "*" means no check
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        try {
+            return Long.parseLong(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a version returned in an ETag");
+        }
+    }
 }
 
@@ -0,0 +1,10 @@
+package com.example.EduPatch.dto;
+
+import java.time.Instant;
+
+/**
+ * The caller identified by a verified access token; everything here comes from the token's claims,
+ * so resolving it never touches MongoDB.
+ */
+public record AuthenticatedUser(String userId, String email, String role, Instant expiresAt) {
+}
@@ -0,0 +1,10 @@
+package com.example.EduPatch.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@code nextCursor} back to fetch the
+ * following page; it is null once the listing is exhausted.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,9 @@
+package com.example.EduPatch.dto;
+
+/**
+ * A page's offline bundle, serialized and gzip-compressed once and then served as-is.
+ * The version is a hash of the bundle content and is used to derive the ETags.
+ * Instances are shared between requests, so the byte array must never be modified.
+ */
+public record OfflineBundle(byte[] gzipped, String version) {
+}
@@ -0,0 +1,13 @@
+package com.example.EduPatch.dto;
+
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.entity.TextBookPage;
+
+import java.util.List;
+
+/**
+ * A page and its quizzes as delivered to offline clients, tagged with the content
+ * version that the page's offline bundle also uses as its ETag.
+ */
+public record OfflinePageEntry(TextBookPage page, List<Quiz> quizzes, String version) {
+}
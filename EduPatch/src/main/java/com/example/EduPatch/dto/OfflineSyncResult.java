@@ -0,0 +1,13 @@
+package com.example.EduPatch.dto;
+
+import java.util.List;
+
+/**
+ * Changes to a user's offline pages since their last sync.
+ * @param token Pass back on the next sync to receive only later changes
+ * @param reset True when the client's token was missing or too old and {@code pages} is the full set
+ * @param pages Pages that were added or changed, with their quizzes
+ * @param deleted Ids of pages that no longer exist and should be dropped from the device
+ */
+public record OfflineSyncResult(long token, boolean reset, List<OfflinePageEntry> pages, List<String> deleted) {
+}
@@ -0,0 +1,8 @@
+package com.example.EduPatch.dto;
+
+/**
+ * A rendered QR code PNG together with its content-addressed ETag.
+ * Instances are shared between requests, so the byte array must never be modified.
+ */
+public record QRCodeImage(byte[] bytes, String etag) {
+}
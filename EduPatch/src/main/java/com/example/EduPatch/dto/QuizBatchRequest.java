@@ -0,0 +1,45 @@
+package com.example.EduPatch.dto;
+
+import com.example.EduPatch.entity.Quiz;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class QuizBatchRequest {
+
+    @JsonProperty("pageId")
+    private String pageId;
+
+    @JsonProperty("quizzes")
+    private List<Quiz> quizzes;
+
+    // When true, the page's existing quizzes are swapped for this set atomically
+    @JsonProperty("replace")
+    private boolean replace;
+
+    public QuizBatchRequest() {}
+
+    public String getPageId() {
+        return pageId;
+    }
+
+    public void setPageId(String pageId) {
+        this.pageId = pageId;
+    }
+
+    public List<Quiz> getQuizzes() {
+        return quizzes;
+    }
+
+    public void setQuizzes(List<Quiz> quizzes) {
+        this.quizzes = quizzes;
+    }
+
+    public boolean isReplace() {
+        return replace;
+    }
+
+    public void setReplace(boolean replace) {
+        this.replace = replace;
+    }
+}
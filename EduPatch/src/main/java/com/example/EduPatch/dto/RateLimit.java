@@ -0,0 +1,16 @@
+package com.example.EduPatch.dto;
+
+import java.time.Duration;
+
+/**
+ * A token bucket: up to {@code capacity} attempts in a burst, refilled evenly over {@code period}.
+ */
+public record RateLimit(int capacity, Duration period) {
+
+    /**
+     * Time for one token to refill.
+     */
+    public long emissionIntervalNanos() {
+        return period.toNanos() / capacity;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.EduPatch.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Status of a content-generation workflow started in async mode.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WorkflowJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final String jobId;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+    private volatile LocalDateTime completedAt;
+
+    public WorkflowJob(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public void complete(Map<String, Object> result) {
+        this.result = result;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
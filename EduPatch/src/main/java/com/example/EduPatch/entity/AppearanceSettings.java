@@ -0,0 +1,29 @@
+package com.example.EduPatch.entity;
+
+import static com.example.EduPatch.entity.SettingsFlag.*;
+
+/**
+ * Read-only view of the appearance flags. There are only 8 combinations, so every instance is shared.
+ */
+public record AppearanceSettings(boolean darkMode, boolean compactMode, boolean animations) {
+
+    private static final AppearanceSettings[] INSTANCES = new AppearanceSettings[8];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new AppearanceSettings((i & 1) != 0, (i & 2) != 0, (i & 4) != 0);
+        }
+    }
+
+    public static AppearanceSettings of(int flags) {
+        return INSTANCES[(APPEARANCE_DARK_MODE.isSet(flags) ? 1 : 0)
+                | (APPEARANCE_COMPACT_MODE.isSet(flags) ? 2 : 0)
+                | (APPEARANCE_ANIMATIONS.isSet(flags) ? 4 : 0)];
+    }
+
+    public int applyTo(int flags) {
+        flags = APPEARANCE_DARK_MODE.apply(flags, darkMode);
+        flags = APPEARANCE_COMPACT_MODE.apply(flags, compactMode);
+        return APPEARANCE_ANIMATIONS.apply(flags, animations);
+    }
+}
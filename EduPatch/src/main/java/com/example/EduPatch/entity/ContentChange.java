@@ -0,0 +1,72 @@
+package com.example.EduPatch.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Changelog entry recording that a page or its quizzes changed, or that one user added a page
+ * to their offline set. Offline clients sync by asking for every entry after the last sequence
+ * number they saw.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "content_changes")
+public class ContentChange {
+    @Id
+    private String id;
+    @Indexed(unique = true)
+    private long seq;
+    private String pageId;
+    // Set if the entry concerns only this user's offline set
+    private String userId;
+    // Entries older than the retention window are dropped; clients that far behind get a full resync
+    @Indexed(expireAfter = "30d")
+    private LocalDateTime changedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getPageId() {
+        return pageId;
+    }
+
+    public void setPageId(String pageId) {
+        this.pageId = pageId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.EduPatch.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A model answer kept for reuse (see GenerationCache). The id is a hash of the kind, generator version
+ * and normalized page text, so resubmitting the same text finds it. Shared between callers: don't modify.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "generated_content")
+public class GeneratedContent {
+    @Id
+    private String key;
+    // "summary", "explanation" or "quiz"
+    private String kind;
+    // Model and prompt version that produced it, e.g. "gemini-1.5-pro/prompt-v1"
+    private String generator;
+    // Set for summaries and explanations
+    private String text;
+    // Set for quizzes
+    private List<Question> questions;
+    private Instant createdAt;
+    // Pushed back whenever the entry is read from MongoDB, so only unused entries expire
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+
+    public record Question(String question, List<String> options, String answer) {
+        // Immutable, so quizzes made from it can share the options
+        public Question {
+            options = options != null ? List.copyOf(options) : List.of();
+        }
+    }
+
+    public static GeneratedContent ofText(String text) {
+        GeneratedContent content = new GeneratedContent();
+        content.setText(text);
+        return content;
+    }
+
+    public static GeneratedContent ofQuestions(List<Question> questions) {
+        GeneratedContent content = new GeneratedContent();
+        content.setQuestions(List.copyOf(questions));
+        return content;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.EduPatch.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A bulk upload of textbook pages (see IngestionService). Every page's outcome is recorded as it is
+ * written, so progress can be polled and an interrupted or partly failed job resumed where it stopped.
+ * The page texts are in {@link IngestionPage}s.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "ingestion_jobs")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IngestionJob {
+
+    public enum Status { RUNNING, COMPLETED, COMPLETED_WITH_FAILURES }
+
+    public enum ItemStatus { PENDING, DONE, FAILED }
+
+    @Id
+    private String jobId;
+    @Indexed
+    private String createdBy;
+    private Status status;
+    private int total;
+    private int succeeded;
+    private int failed;
+    private Instant createdAt;
+    private Instant updatedAt;
+    // While RUNNING: the run that holds the job, which renews leaseUntil as it goes; once the lease
+    // has expired (e.g. the instance stopped) any instance may resume the job
+    @JsonIgnore
+    private String leaseOwner;
+    private Instant leaseUntil;
+    // In upload order; an item's index in this list is its position in the upload
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private String chapter;
+        private String pageNumber;
+        private ItemStatus status;
+        // Recorded before the page is written; only a DONE item's page is complete
+        private String pageId;
+        // Set when the page failed
+        private String error;
+    }
+}
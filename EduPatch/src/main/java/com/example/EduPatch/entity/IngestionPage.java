@@ -0,0 +1,25 @@
+package com.example.EduPatch.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The text of one uploaded page of an {@link IngestionJob}, kept apart from the job so that a whole book
+ * doesn't have to fit in one document. Removed once the page is saved.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "ingestion_pages")
+public class IngestionPage {
+    // jobId:index, see IngestionService
+    @Id
+    private String id;
+    @Indexed
+    private String jobId;
+    private String content;
+}
@@ -0,0 +1,33 @@
+package com.example.EduPatch.entity;
+
+import static com.example.EduPatch.entity.SettingsFlag.*;
+
+/**
+ * Read-only view of the notification flags. There are only 32 combinations, so every instance is shared.
+ */
+public record NotificationSettings(boolean email, boolean push, boolean quiz, boolean content, boolean sound) {
+
+    private static final NotificationSettings[] INSTANCES = new NotificationSettings[32];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new NotificationSettings((i & 1) != 0, (i & 2) != 0, (i & 4) != 0, (i & 8) != 0, (i & 16) != 0);
+        }
+    }
+
+    public static NotificationSettings of(int flags) {
+        return INSTANCES[(NOTIFICATIONS_EMAIL.isSet(flags) ? 1 : 0)
+                | (NOTIFICATIONS_PUSH.isSet(flags) ? 2 : 0)
+                | (NOTIFICATIONS_QUIZ.isSet(flags) ? 4 : 0)
+                | (NOTIFICATIONS_CONTENT.isSet(flags) ? 8 : 0)
+                | (NOTIFICATIONS_SOUND.isSet(flags) ? 16 : 0)];
+    }
+
+    public int applyTo(int flags) {
+        flags = NOTIFICATIONS_EMAIL.apply(flags, email);
+        flags = NOTIFICATIONS_PUSH.apply(flags, push);
+        flags = NOTIFICATIONS_QUIZ.apply(flags, quiz);
+        flags = NOTIFICATIONS_CONTENT.apply(flags, content);
+        return NOTIFICATIONS_SOUND.apply(flags, sound);
+    }
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -12,13 +14,16 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "Offline_Cache")
+// One entry per user and page; the userId prefix also serves the per-user listing
+@CompoundIndex(name = "userId_pageId", def = "{'userId': 1, 'pageId': 1}", unique = true)
 public class OfflineCache {
     @Id
     private String cacheId;
     private String userId;
+    @Indexed
     private String pageId;
     private LocalDateTime downloadedAt;
-    private String content;
+    // No copy of the page content: clients fetch the shared, versioned page through /offline/sync
 
     public String getCacheId() {
         return cacheId;
@@ -51,12 +56,4 @@ public class OfflineCache {
     public void setDownloadedAt(LocalDateTime downloadedAt) {
         this.downloadedAt = downloadedAt;
     }
-
-    public String getContent() {
-        return content;
-    }
-
-    public void setContent(String content) {
-        this.content = content;
-    }
 }
@@ -0,0 +1,29 @@
+package com.example.EduPatch.entity;
+
+import static com.example.EduPatch.entity.SettingsFlag.*;
+
+/**
+ * Read-only view of the privacy flags. There are only 8 combinations, so every instance is shared.
+ */
+public record PrivacySettings(boolean profileVisible, boolean analyticsEnabled, boolean dataSharing) {
+
+    private static final PrivacySettings[] INSTANCES = new PrivacySettings[8];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new PrivacySettings((i & 1) != 0, (i & 2) != 0, (i & 4) != 0);
+        }
+    }
+
+    public static PrivacySettings of(int flags) {
+        return INSTANCES[(PRIVACY_PROFILE_VISIBLE.isSet(flags) ? 1 : 0)
+                | (PRIVACY_ANALYTICS_ENABLED.isSet(flags) ? 2 : 0)
+                | (PRIVACY_DATA_SHARING.isSet(flags) ? 4 : 0)];
+    }
+
+    public int applyTo(int flags) {
+        flags = PRIVACY_PROFILE_VISIBLE.apply(flags, profileVisible);
+        flags = PRIVACY_ANALYTICS_ENABLED.apply(flags, analyticsEnabled);
+        return PRIVACY_DATA_SHARING.apply(flags, dataSharing);
+    }
+}
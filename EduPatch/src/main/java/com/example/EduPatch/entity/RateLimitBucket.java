@@ -0,0 +1,27 @@
+package com.example.EduPatch.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Token bucket shared by all instances (see MongoRateLimitStore); the id is the limited key, e.g. "ip:1.2.3.4".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "rate_limits")
+public class RateLimitBucket {
+    @Id
+    private String key;
+    // Epoch millis at which the bucket will be full again
+    private long theoreticalArrival;
+    // A bucket is full again by this time, so MongoDB may drop it
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -0,0 +1,79 @@
+package com.example.EduPatch.entity;
+
+import java.util.Optional;
+
+/**
+ * Every on/off user setting, stored together as one bit each in {@link UserSettings}'s flags.
+ * The bit is the constant's ordinal, so new flags may only be appended and none may be reordered or removed.
+ */
+public enum SettingsFlag {
+    NOTIFICATIONS_EMAIL("notifications", "email", true),
+    NOTIFICATIONS_PUSH("notifications", "push", true),
+    NOTIFICATIONS_QUIZ("notifications", "quiz", true),
+    NOTIFICATIONS_CONTENT("notifications", "content", true),
+    NOTIFICATIONS_SOUND("notifications", "sound", true),
+    APPEARANCE_DARK_MODE("appearance", "darkMode", false),
+    APPEARANCE_COMPACT_MODE("appearance", "compactMode", false),
+    APPEARANCE_ANIMATIONS("appearance", "animations", true),
+    PRIVACY_PROFILE_VISIBLE("privacy", "profileVisible", true),
+    PRIVACY_ANALYTICS_ENABLED("privacy", "analyticsEnabled", true),
+    PRIVACY_DATA_SHARING("privacy", "dataSharing", false),
+    SYSTEM_AUTO_SAVE("system", "autoSave", true),
+    SYSTEM_OFFLINE_MODE("system", "offlineMode", true);
+
+    public static final int DEFAULTS = defaults();
+
+    private final String section;
+    private final String key;
+    private final boolean defaultValue;
+
+    SettingsFlag(String section, String key, boolean defaultValue) {
+        this.section = section;
+        this.key = key;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean getDefaultValue() {
+        return defaultValue;
+    }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSet(int flags) {
+        return (flags & mask()) != 0;
+    }
+
+    public int apply(int flags, boolean on) {
+        return on ? flags | mask() : flags & ~mask();
+    }
+
+    /**
+     * Looks a flag up by its JSON location, e.g. ("appearance", "darkMode").
+     */
+    public static Optional<SettingsFlag> find(String section, String key) {
+        for (SettingsFlag flag : values()) {
+            if (flag.section.equals(section) && flag.key.equals(key)) {
+                return Optional.of(flag);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static int defaults() {
+        int flags = 0;
+        for (SettingsFlag flag : values()) {
+            flags = flag.apply(flags, flag.defaultValue);
+        }
+        return flags;
+    }
+}
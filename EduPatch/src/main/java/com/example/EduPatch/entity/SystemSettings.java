@@ -0,0 +1,23 @@
+package com.example.EduPatch.entity;
+
+import static com.example.EduPatch.entity.SettingsFlag.*;
+
+/**
+ * Read-only view of the system settings: two flags plus the free-text cache size and language.
+ */
+public record SystemSettings(boolean autoSave, boolean offlineMode, String cacheSize, String language) {
+
+    public static final String DEFAULT_CACHE_SIZE = "500MB";
+    public static final String DEFAULT_LANGUAGE = "English";
+
+    public static SystemSettings of(int flags, String cacheSize, String language) {
+        return new SystemSettings(SYSTEM_AUTO_SAVE.isSet(flags), SYSTEM_OFFLINE_MODE.isSet(flags),
+                cacheSize != null ? cacheSize : DEFAULT_CACHE_SIZE,
+                language != null ? language : DEFAULT_LANGUAGE);
+    }
+
+    public int applyTo(int flags) {
+        flags = SYSTEM_AUTO_SAVE.apply(flags, autoSave);
+        return SYSTEM_OFFLINE_MODE.apply(flags, offlineMode);
+    }
+}
@@ -4,15 +4,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "TextBook_Pages")
+// Serves both the per-admin listing and its keyset pagination (createdBy filter, _id order)
+@CompoundIndex(name = "createdBy_id", def = "{'createdBy': 1, '_id': 1}")
 public class TextBookPage {
     @Id
     private String pageId;
+    @Indexed
     private String chapter;
     private String pageNumber;
     private String content;
@@ -1,13 +1,12 @@
 package com.example.EduPatch.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.HashMap;
 
 @Data
 @AllArgsConstructor
@@ -21,18 +20,18 @@ public class User {
 
     @Indexed(unique = true)
     private String email;
+    // Accepted on registration, never sent back
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     private String role;
     private String phone;
     private String avatar;
     private LocalDateTime lastPasswordChange;
-    
-    // Settings as embedded document
-    private Map<String, Object> settings;
+    // Bumped by every targeted update; clients send it back in If-Match (missing on old documents = 0)
+    private Long version;
 
     // Constructors
     public User() {
-        this.settings = getDefaultSettings();
         this.lastPasswordChange = LocalDateTime.now();
     }
 
@@ -41,47 +40,9 @@ public class User {
         this.email = email;
         this.password = password;
         this.role = role;
-        this.settings = getDefaultSettings();
         this.lastPasswordChange = LocalDateTime.now();
     }
 
-    private Map<String, Object> getDefaultSettings() {
-        Map<String, Object> defaultSettings = new HashMap<>();
-        
-        // Notification settings
-        Map<String, Boolean> notifications = new HashMap<>();
-        notifications.put("email", true);
-        notifications.put("push", true);
-        notifications.put("quiz", true);
-        notifications.put("content", true);
-        notifications.put("sound", true);
-        defaultSettings.put("notifications", notifications);
-        
-        // Appearance settings
-        Map<String, Object> appearance = new HashMap<>();
-        appearance.put("darkMode", false);
-        appearance.put("compactMode", false);
-        appearance.put("animations", true);
-        defaultSettings.put("appearance", appearance);
-        
-        // Privacy settings
-        Map<String, Boolean> privacy = new HashMap<>();
-        privacy.put("profileVisible", true);
-        privacy.put("analyticsEnabled", true);
-        privacy.put("dataSharing", false);
-        defaultSettings.put("privacy", privacy);
-        
-        // System settings
-        Map<String, Object> system = new HashMap<>();
-        system.put("autoSave", true);
-        system.put("offlineMode", true);
-        system.put("cacheSize", "500MB");
-        system.put("language", "English");
-        defaultSettings.put("system", system);
-        
-        return defaultSettings;
-    }
-
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -107,11 +68,6 @@ public class User {
     public LocalDateTime getLastPasswordChange() { return lastPasswordChange; }
     public void setLastPasswordChange(LocalDateTime lastPasswordChange) { this.lastPasswordChange = lastPasswordChange; }
 
-    public Map<String, Object> getSettings() { 
-        if (settings == null) {
-            settings = getDefaultSettings();
-        }
-        return settings; 
-    }
-    public void setSettings(Map<String, Object> settings) { this.settings = settings; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -1,42 +1,76 @@
 package com.example.EduPatch.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Stored compactly as one int of {@link SettingsFlag} bits plus two strings; the API still
+ * sees the notifications / appearance / privacy / system sections, as immutable records.
+ */
 @Data
 @Document(collection = "user_settings")
 public class UserSettings {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String userId;
-    private Map<String, Object> notifications = new HashMap<>();
-    private Map<String, Object> appearance = new HashMap<>();
-    private Map<String, Object> privacy = new HashMap<>();
-    private Map<String, Object> system = new HashMap<>();
-    
-    public UserSettings() {
-        // Default settings
-        notifications.put("email", true);
-        notifications.put("push", true);
-        notifications.put("quiz", true);
-        notifications.put("content", true);
-        notifications.put("sound", true);
-        
-        appearance.put("darkMode", false);
-        appearance.put("compactMode", false);
-        appearance.put("animations", true);
-        
-        privacy.put("profileVisible", true);
-        privacy.put("analyticsEnabled", true);
-        privacy.put("dataSharing", false);
-        
-        system.put("autoSave", true);
-        system.put("offlineMode", true);
-        system.put("cacheSize", "500MB");
-        system.put("language", "English");
-    }
-}
\ No newline at end of file
+    // Bumped by every update; clients send it back in If-Match (missing on old documents = 0)
+    private Long version;
+    // Null means defaults on a new instance, or a document still in the old per-section map format
+    // (see UserSettingsService#migrateLegacySettings)
+    @JsonIgnore
+    private Integer flags;
+    @JsonIgnore
+    private String cacheSize;
+    @JsonIgnore
+    private String language;
+
+    /**
+     * The stored flags, or the defaults for settings that were never written.
+     */
+    public int effectiveFlags() {
+        return flags != null ? flags : SettingsFlag.DEFAULTS;
+    }
+
+    @Transient
+    public NotificationSettings getNotifications() {
+        return NotificationSettings.of(effectiveFlags());
+    }
+
+    public void setNotifications(NotificationSettings notifications) {
+        flags = notifications.applyTo(effectiveFlags());
+    }
+
+    @Transient
+    public AppearanceSettings getAppearance() {
+        return AppearanceSettings.of(effectiveFlags());
+    }
+
+    public void setAppearance(AppearanceSettings appearance) {
+        flags = appearance.applyTo(effectiveFlags());
+    }
+
+    @Transient
+    public PrivacySettings getPrivacy() {
+        return PrivacySettings.of(effectiveFlags());
+    }
+
+    public void setPrivacy(PrivacySettings privacy) {
+        flags = privacy.applyTo(effectiveFlags());
+    }
+
+    @Transient
+    public SystemSettings getSystem() {
+        return SystemSettings.of(effectiveFlags(), cacheSize, language);
+    }
+
+    public void setSystem(SystemSettings system) {
+        flags = system.applyTo(effectiveFlags());
+        cacheSize = system.cacheSize();
+        language = system.language();
+    }
+}
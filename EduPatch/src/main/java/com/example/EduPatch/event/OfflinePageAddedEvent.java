@@ -0,0 +1,7 @@
+package com.example.EduPatch.event;
+
+/**
+ * Published after a user added a page to their offline set, so that their next sync delivers it.
+ */
+public record OfflinePageAddedEvent(String userId, String pageId) {
+}
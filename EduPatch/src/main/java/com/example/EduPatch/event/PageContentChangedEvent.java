@@ -0,0 +1,8 @@
+package com.example.EduPatch.event;
+
+/**
+ * Published after a page or its quiz set was created, changed or deleted, so that
+ * derived artifacts (e.g. offline bundles) can be rebuilt.
+ */
+public record PageContentChangedEvent(String pageId) {
+}
@@ -0,0 +1,14 @@
+package com.example.EduPatch.repository;
+
+import com.example.EduPatch.entity.ContentChange;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ContentChangeRepository extends MongoRepository<ContentChange, String> {
+    List<ContentChange> findBySeqGreaterThanOrderBySeqAsc(long seq);
+    Optional<ContentChange> findFirstByOrderBySeqAsc();
+}
@@ -2,6 +2,7 @@ package com.example.EduPatch.repository;
 
 import com.example.EduPatch.entity.OfflineCache;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,5 +12,9 @@ public interface OfflineCacheRepository extends MongoRepository<OfflineCache , S
     List<OfflineCache> findByUserId(String userId);
     List<OfflineCache> findByPageId(String pageId);
     OfflineCache findByUserIdAndPageId(String userId, String pageId);
+    long deleteByUserIdAndPageId(String userId, String pageId);
+
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'pageId': 1 }")
+    List<OfflineCache> findPageRefsByUserId(String userId);
 
 }
@@ -4,11 +4,13 @@ import com.example.EduPatch.entity.Quiz;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 
 public interface QuizRepository extends MongoRepository<Quiz, String> {
     List<Quiz> findByPageId(String pageId);
+    List<Quiz> findByPageIdIn(Collection<String> pageIds);
 
 }
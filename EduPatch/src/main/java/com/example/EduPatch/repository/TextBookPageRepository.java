@@ -2,6 +2,7 @@ package com.example.EduPatch.repository;
 
 import com.example.EduPatch.entity.TextBookPage;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +12,11 @@ public interface TextBookPageRepository extends MongoRepository<TextBookPage , S
 
     List<TextBookPage> findPagesByChapter(String chapter);
     List<TextBookPage> findByCreatedBy(String createdBy);
+
+    // Sticker sheets only need page identity, so skip the large text fields
+    @Query(value = "{ 'chapter': ?0 }", fields = "{ 'chapter': 1, 'pageNumber': 1 }")
+    List<TextBookPage> findPageRefsByChapter(String chapter);
+
+    @Query(value = "{ 'createdBy': ?0 }", fields = "{ 'chapter': 1, 'pageNumber': 1 }")
+    List<TextBookPage> findPageRefsByCreatedBy(String createdBy);
 }
@@ -0,0 +1,62 @@
+package com.example.EduPatch.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row calls are refused
+ * for {@code openDuration}; then a single trial call is let through, which closes the circuit on success
+ * and reopens it on failure. Every permitted call must end in {@link #onSuccess()} or {@link #onFailure()}.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return True if the call may go ahead
+     */
+    public boolean tryAcquirePermission() {
+        if (!open) {
+            return true;
+        }
+        return System.nanoTime() - openedAt >= openNanos && trialInFlight.compareAndSet(false, true);
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        open = false;
+        trialInFlight.set(false);
+    }
+
+    public void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || trialInFlight.get()) {
+            openedAt = System.nanoTime();
+            open = true;
+            trialInFlight.set(false);
+        }
+    }
+
+    public State getState() {
+        if (!open) {
+            return State.CLOSED;
+        }
+        return System.nanoTime() - openedAt >= openNanos ? State.HALF_OPEN : State.OPEN;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.OfflineSyncResult;
+import com.example.EduPatch.entity.ContentChange;
+import com.example.EduPatch.entity.TextBookPage;
+import com.example.EduPatch.event.OfflinePageAddedEvent;
+import com.example.EduPatch.event.PageContentChangedEvent;
+import com.example.EduPatch.repository.ContentChangeRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Incremental sync for offline devices. Every page or quiz mutation, and every page a user adds to
+ * their offline set, appends the page id to a sequence-numbered changelog; a sync returns only the
+ * user's pages touched or added after their token.
+ */
+@Service
+public class ContentSyncService {
+
+    private static final String COUNTERS_COLLECTION = "counters";
+    private static final String CHANGES_COUNTER = "content_changes";
+    // A seq is taken from the counter before its entry is inserted; a gap older than this is a failed insert
+    private static final Duration ABANDONED_GAP = Duration.ofMinutes(1);
+
+    @Autowired
+    private ContentChangeRepository contentChangeRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OfflineCacheService offlineCacheService;
+
+    @Autowired
+    private TextBookPageService textBookPageService;
+
+    @Autowired
+    private OfflineBundleService offlineBundleService;
+
+    @EventListener
+    public void onPageContentChanged(PageContentChangedEvent event) {
+        contentChangeRepository.insert(new ContentChange(null, nextSeq(), event.pageId(), null, LocalDateTime.now()));
+    }
+
+    @EventListener
+    public void onOfflinePageAdded(OfflinePageAddedEvent event) {
+        contentChangeRepository.insert(new ContentChange(null, nextSeq(), event.pageId(), event.userId(), LocalDateTime.now()));
+    }
+
+    /**
+     * @param userId The user whose offline pages to sync
+     * @param token The token from the previous sync, or null for a full sync
+     */
+    public OfflineSyncResult sync(String userId, Long token) {
+        // Read the high-water mark first so changes recorded during this sync are picked up next time
+        long latest = currentSeq();
+        Set<String> userPageIds = offlineCacheService.getCachedPageIds(userId);
+
+        if (token == null || !isReplayable(token, latest)) {
+            List<TextBookPage> pages = textBookPageService.getPagesByIds(userPageIds);
+            return new OfflineSyncResult(latest, true, offlineBundleService.toEntries(pages), List.of());
+        }
+
+        Set<String> changedPageIds = new HashSet<>();
+        Query query = Query.query(Criteria.where("seq").gt(token).lte(latest)).with(Sort.by("seq"));
+        query.fields().include("seq", "pageId", "userId", "changedAt");
+        // The next token only moves past entries that were all read: an entry whose seq is taken but not
+        // yet inserted must still be delivered next time. Entries after such a gap are sent now, and again then.
+        long nextToken = token;
+        boolean contiguous = true;
+        LocalDateTime abandonedBefore = LocalDateTime.now().minus(ABANDONED_GAP);
+        for (ContentChange change : mongoTemplate.find(query, ContentChange.class)) {
+            // Pages other users added to their offline sets are none of this user's business
+            if (change.getUserId() == null || change.getUserId().equals(userId)) {
+                changedPageIds.add(change.getPageId());
+            }
+            if (contiguous && (change.getSeq() == nextToken + 1 || change.getChangedAt().isBefore(abandonedBefore))) {
+                nextToken = change.getSeq();
+            } else {
+                contiguous = false;
+            }
+        }
+        if (changedPageIds.isEmpty()) {
+            return new OfflineSyncResult(nextToken, false, List.of(), List.of());
+        }
+
+        // Deleting a page also drops everyone's offline reference to it, so deletions are reported
+        // for every changed page that no longer exists; clients ignore ids they never had
+        Set<String> existing = textBookPageService.getExistingPageIds(changedPageIds);
+        List<String> deleted = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        for (String pageId : changedPageIds) {
+            if (!existing.contains(pageId)) {
+                deleted.add(pageId);
+            } else if (userPageIds.contains(pageId)) {
+                updated.add(pageId);
+            }
+        }
+
+        List<TextBookPage> pages = updated.isEmpty() ? List.of() : textBookPageService.getPagesByIds(updated);
+        return new OfflineSyncResult(nextToken, false, offlineBundleService.toEntries(pages), deleted);
+    }
+
+    /**
+     * A token can be replayed if it is not from the future and no changes after it were expired.
+     */
+    private boolean isReplayable(long token, long latest) {
+        if (token > latest) {
+            return false;
+        }
+        Optional<ContentChange> oldest = contentChangeRepository.findFirstByOrderBySeqAsc();
+        long oldestRetained = oldest.map(ContentChange::getSeq).orElse(latest + 1);
+        return token >= oldestRetained - 1;
+    }
+
+    private long nextSeq() {
+        Document counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(CHANGES_COUNTER)),
+                new Update().inc("seq", 1L),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Document.class,
+                COUNTERS_COLLECTION);
+        return counter.get("seq", Number.class).longValue();
+    }
+
+    private long currentSeq() {
+        Document counter = mongoTemplate.findById(CHANGES_COUNTER, Document.class, COUNTERS_COLLECTION);
+        return counter != null ? counter.get("seq", Number.class).longValue() : 0;
+    }
+}
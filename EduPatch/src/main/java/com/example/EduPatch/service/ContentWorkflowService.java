@@ -0,0 +1,176 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.WorkflowJob;
+import com.example.EduPatch.dto.WorkflowRequest;
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.entity.TextBookPage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Runs the create-page workflow as a pipeline: summary, explanation and quiz generation
+ * run concurrently, the page is saved as soon as its text is ready, and the quiz set is
+ * written in one batch once both the page id and the questions exist. A {@link Progress} listener
+ * can follow the summary and explanation while the model writes them.
+ */
+@Service
+public class ContentWorkflowService {
+
+    @Autowired
+    private GeminiService geminiService;
+
+    @Autowired
+    private TextBookPageService textBookPageService;
+
+    @Autowired
+    private QuizService quizService;
+
+    @Autowired
+    @Qualifier("contentGenerationExecutor")
+    private ExecutorService executor;
+
+    // Finished jobs stay pollable for an hour; the bound protects the heap from abandoned jobs
+    private final Cache<String, WorkflowJob> jobs = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    /**
+     * Receives the page text while it is generated; called from the generation threads, possibly concurrently.
+     */
+    public interface Progress {
+
+        /**
+         * @param field "summary" or "explanation"
+         * @param piece The next piece of text the model wrote
+         */
+        void onText(String field, String piece);
+
+        /**
+         * The final text of the field. It replaces the pieces: if the model failed half way, the text
+         * comes from the cache or the fallback instead.
+         */
+        void onDone(String field, String text);
+    }
+
+    /**
+     * Starts the workflow; the future completes with the same response body the synchronous endpoint returns.
+     */
+    public CompletableFuture<Map<String, Object>> run(WorkflowRequest request) {
+        return run(request, null);
+    }
+
+    /**
+     * Starts the workflow, reporting the generated text to the given listener (may be null) as it is written.
+     */
+    public CompletableFuture<Map<String, Object>> run(WorkflowRequest request, Progress progress) {
+        String content = request.getContent();
+
+        CompletableFuture<String> summary = generateText("summary", content, geminiService::generateSummary, progress);
+        CompletableFuture<String> explanation = generateText("explanation", content, geminiService::generateExplanation, progress);
+        // Questions don't depend on the page id, so generate them now and stamp the id on after the save
+        CompletableFuture<List<Quiz>> quizzes =
+                CompletableFuture.supplyAsync(() -> geminiService.generateQuiz(content, null), executor);
+
+        CompletableFuture<TextBookPage> savedPage = summary.thenCombine(explanation, (pageSummary, pageExplanation) -> {
+            TextBookPage page = new TextBookPage();
+            page.setChapter(request.getChapter());
+            page.setPageNumber(request.getPageNumber());
+            page.setContent(content);
+            page.setSummary(pageSummary);
+            page.setExplanation(pageExplanation);
+            page.setCreatedBy(request.getUserId()); // Set the user who created this content
+            return textBookPageService.createPage(page);
+        });
+
+        return savedPage.thenCombine(quizzes, (page, generated) -> {
+            generated.forEach(quiz -> quiz.setPageId(page.getPageId()));
+            List<Quiz> savedQuizzes = quizService.createQuizzes(generated);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("page", page);
+            response.put("quizzes", savedQuizzes);
+            response.put("qrCodeUrl", "/pages/" + page.getPageId() + "/qrcode");
+            response.put("status", "success");
+            return response;
+        });
+    }
+
+    /**
+     * Regenerates the summary, explanation and quiz set of an existing page, concurrently like {@link #run}.
+     * @param content The text to generate from, usually the page's own content
+     * @param progress Receives the generated text as it is written, or null
+     * @return Completes with the updated page and its new quizzes
+     */
+    public CompletableFuture<Map<String, Object>> regenerate(TextBookPage page, String content, Progress progress) {
+        String pageId = page.getPageId();
+        CompletableFuture<String> summary = generateText("summary", content, geminiService::generateSummary, progress);
+        CompletableFuture<String> explanation = generateText("explanation", content, geminiService::generateExplanation, progress);
+        CompletableFuture<List<Quiz>> quizzes =
+                CompletableFuture.supplyAsync(() -> geminiService.generateQuiz(content, pageId), executor);
+
+        CompletableFuture<TextBookPage> updatedPage = summary.thenCombine(explanation, (pageSummary, pageExplanation) -> {
+            page.setSummary(pageSummary);
+            page.setExplanation(pageExplanation);
+            return textBookPageService.updatePage(pageId, page);
+        });
+
+        // Replaces the page's previous question set in a single write
+        return updatedPage.thenCombine(quizzes, (updated, generated) -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("page", updated);
+            response.put("quizzes", quizService.replaceQuizzesForPage(pageId, generated));
+            return response;
+        });
+    }
+
+    private CompletableFuture<String> generateText(String field, String content,
+                                                   BiFunction<String, Consumer<String>, String> generator, Progress progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (progress == null) {
+                return generator.apply(content, null);
+            }
+            String text = generator.apply(content, piece -> progress.onText(field, piece));
+            progress.onDone(field, text);
+            return text;
+        }, executor);
+    }
+
+    /**
+     * Starts the workflow in the background and returns a job that can be polled via {@link #getJob}.
+     */
+    public WorkflowJob submit(WorkflowRequest request) {
+        WorkflowJob job = new WorkflowJob(UUID.randomUUID().toString());
+        jobs.put(job.getJobId(), job);
+        run(request).whenComplete((result, error) -> {
+            if (error != null) {
+                job.fail(rootCause(error).getMessage());
+            } else {
+                job.complete(result);
+            }
+        });
+        return job;
+    }
+
+    public WorkflowJob getJob(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    public static Throwable rootCause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
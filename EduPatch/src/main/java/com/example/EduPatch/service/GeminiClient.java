@@ -0,0 +1,378 @@
+package com.example.EduPatch.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Calls the Gemini {@code generateContent} REST API, or {@code streamGenerateContent} (server-sent events)
+ * when the caller wants the text as it is written. One shared HTTP/2 client multiplexes all calls over
+ * pooled connections. Each call is bounded three ways: a per-attempt timeout, an overall deadline that
+ * covers retries (429/5xx/timeouts, exponential backoff with full jitter, Retry-After honoured), and a cap
+ * on concurrent calls. A circuit breaker stops calling the API for a while after repeated failures.
+ * Outcomes are timed in {@code gemini.requests}.
+ */
+@Service
+@ConditionalOnProperty(name = "gemini.enabled", havingValue = "true", matchIfMissing = true)
+public class GeminiClient implements LlmClient {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gemini.api.key}")
+    private String apiKey;
+
+    @Value("${gemini.publisher.model}")
+    private String model;
+
+    @Value("${gemini.base-url:https://generativelanguage.googleapis.com/v1beta}")
+    private String baseUrl;
+
+    @Value("${gemini.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${gemini.request-timeout:PT20S}")
+    private Duration requestTimeout;
+
+    @Value("${gemini.deadline:PT45S}")
+    private Duration deadline;
+
+    @Value("${gemini.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${gemini.retry.initial-backoff:PT0.25S}")
+    private Duration initialBackoff;
+
+    @Value("${gemini.retry.max-backoff:PT4S}")
+    private Duration maxBackoff;
+
+    @Value("${gemini.max-concurrent-calls:8}")
+    private int maxConcurrentCalls;
+
+    @Value("${gemini.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${gemini.circuit-breaker.open-duration:PT30S}")
+    private Duration openDuration;
+
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpClient httpClient;
+    private URI endpoint;
+    private URI streamEndpoint;
+    private Semaphore permits;
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    void init() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .executor(httpExecutor)
+                .build();
+        endpoint = URI.create(baseUrl + "/models/" + model + ":generateContent");
+        streamEndpoint = URI.create(baseUrl + "/models/" + model + ":streamGenerateContent?alt=sse");
+        permits = new Semaphore(maxConcurrentCalls);
+        circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        meterRegistry.gauge("gemini.circuit_breaker.open", circuitBreaker,
+                breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    @Override
+    public String generate(String prompt, boolean jsonResponse) {
+        return call(requestBody(prompt, jsonResponse), null);
+    }
+
+    @Override
+    public String stream(String prompt, Consumer<String> onText) {
+        return call(requestBody(prompt, false), onText);
+    }
+
+    private String call(String body, Consumer<String> onText) {
+        long deadlineAt = System.nanoTime() + deadline.toNanos();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            if (!permits.tryAcquire(remainingNanos(deadlineAt), TimeUnit.NANOSECONDS)) {
+                outcome = "busy";
+                throw new LlmUnavailableException("Too many concurrent Gemini calls");
+            }
+            try {
+                if (!circuitBreaker.tryAcquirePermission()) {
+                    outcome = "circuit_open";
+                    throw new LlmUnavailableException("Gemini circuit breaker is open");
+                }
+                String text = callWithRetries(body, deadlineAt, onText);
+                outcome = "success";
+                return text;
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmUnavailableException("Interrupted while waiting for Gemini", e);
+        } finally {
+            sample.stop(meterRegistry.timer("gemini.requests", "outcome", outcome));
+        }
+    }
+
+    CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // Reports exactly one success or failure to the circuit breaker
+    private String callWithRetries(String body, long deadlineAt, Consumer<String> onText) throws InterruptedException {
+        Exception lastError = null;
+        for (int attempt = 1; ; attempt++) {
+            long retryAfterNanos = 0;
+            // For a stream the timeout covers the wait for the first byte; the deadline covers the rest
+            Duration timeout = Duration.ofNanos(Math.max(Math.min(requestTimeout.toNanos(), remainingNanos(deadlineAt)),
+                    TimeUnit.MILLISECONDS.toNanos(1)));
+            StreamedText streamed = onText != null ? new StreamedText(onText) : null;
+            HttpRequest request = HttpRequest.newBuilder(streamed != null ? streamEndpoint : endpoint)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header("x-goog-api-key", apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            try {
+                HttpResponse<String> response = streamed != null
+                        ? sendStreaming(request, streamed, deadlineAt)
+                        : httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                int status = response.statusCode();
+                if (status == 200) {
+                    circuitBreaker.onSuccess();
+                    return streamed != null ? requireText(response.body()) : textOf(response.body());
+                }
+                lastError = new IOException("Gemini returned HTTP " + status);
+                if (status == 401 || status == 403 || status == 404) {
+                    // Wrong or revoked key, or unknown model: every call fails the same way until the configuration is fixed
+                    circuitBreaker.onFailure();
+                    throw new LlmUnavailableException(lastError.getMessage());
+                }
+                if (status != 429 && status < 500) {
+                    // This request is wrong (e.g. the prompt is over the input limit); retrying won't help.
+                    // The service itself answered, so other calls keep going to it (and a half-open trial is released)
+                    circuitBreaker.onSuccess();
+                    throw new LlmUnavailableException(lastError.getMessage());
+                }
+                retryAfterNanos = retryAfterNanos(response);
+            } catch (IOException e) {
+                // Includes HttpTimeoutException and refused or reset connections
+                lastError = e;
+                if (streamed != null && streamed.hasText()) {
+                    // A retry would repeat text the caller already has
+                    circuitBreaker.onFailure();
+                    throw new LlmUnavailableException("Gemini stream broke off", e);
+                }
+            } catch (InterruptedException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            }
+
+            long backoffNanos = Math.max(retryAfterNanos, jitteredBackoffNanos(attempt));
+            if (attempt >= maxAttempts || backoffNanos >= remainingNanos(deadlineAt)) {
+                circuitBreaker.onFailure();
+                throw new LlmUnavailableException("Gemini failed after " + attempt + " attempt(s)", lastError);
+            }
+            TimeUnit.NANOSECONDS.sleep(backoffNanos);
+        }
+    }
+
+    // The response completes with the stream; until then each event's text goes to the caller
+    private HttpResponse<String> sendStreaming(HttpRequest request, StreamedText streamed, long deadlineAt)
+            throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<String>> call = httpClient.sendAsync(request, info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(streamed, StreamedText::text, StandardCharsets.UTF_8, null)
+                : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8));
+        try {
+            return call.get(Math.max(remainingNanos(deadlineAt), 1), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            streamed.cancel();
+            call.cancel(true);
+            throw new HttpTimeoutException("Gemini stream passed the deadline");
+        } catch (InterruptedException e) {
+            streamed.cancel();
+            call.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    // Only the delay-seconds form; an HTTP date falls back to our own backoff
+    private static long retryAfterNanos(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .filter(value -> value.matches("\\d{1,6}"))
+                .map(value -> TimeUnit.SECONDS.toNanos(Long.parseLong(value)))
+                .orElse(0L);
+    }
+
+    // Full jitter: uniformly random up to the exponential cap, so clients retrying together spread out
+    private long jitteredBackoffNanos(int attempt) {
+        long cap = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static long remainingNanos(long deadlineAt) {
+        return Math.max(0, deadlineAt - System.nanoTime());
+    }
+
+    private String requestBody(String prompt, boolean jsonResponse) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putArray("contents").addObject()
+                .put("role", "user")
+                .putArray("parts").addObject().put("text", prompt);
+        if (jsonResponse) {
+            body.putObject("generationConfig").put("responseMimeType", "application/json");
+        }
+        return body.toString();
+    }
+
+    private String textOf(String responseBody) {
+        try {
+            return requireText(partsText(objectMapper.readTree(responseBody)));
+        } catch (JsonProcessingException e) {
+            throw new LlmUnavailableException("Unreadable Gemini response", e);
+        }
+    }
+
+    private static String requireText(String text) {
+        if (text.isEmpty()) {
+            // e.g. blocked by a safety filter; the API itself is fine
+            throw new LlmUnavailableException("Gemini returned no text");
+        }
+        return text;
+    }
+
+    private static String partsText(JsonNode response) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode part : response.path("candidates").path(0).path("content").path("parts")) {
+            text.append(part.path("text").asText(""));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads a {@code streamGenerateContent?alt=sse} body line by line. Each {@code data:} line is a complete
+     * response holding the next piece of text.
+     */
+    private class StreamedText implements Flow.Subscriber<String> {
+
+        private final Consumer<String> onText;
+        // Written by the HTTP client, read by the caller; a lock, not a monitor, so virtual threads never pin
+        private final StringBuilder text = new StringBuilder();
+        private final ReentrantLock textLock = new ReentrantLock();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        StreamedText(Consumer<String> onText) {
+            this.onText = onText;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (cancelled || !line.startsWith("data:")) {
+                return;
+            }
+            String piece;
+            try {
+                piece = partsText(objectMapper.readTree(line.substring("data:".length())));
+            } catch (JsonProcessingException e) {
+                // Not an event we understand; the rest of the stream may still be fine
+                return;
+            }
+            if (!piece.isEmpty()) {
+                textLock.lock();
+                try {
+                    text.append(piece);
+                } finally {
+                    textLock.unlock();
+                }
+                onText.accept(piece);
+            }
+        }
+
+        // The end of the stream, or its failure, completes the response future
+        @Override
+        public void onError(Throwable error) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        boolean hasText() {
+            textLock.lock();
+            try {
+                return !text.isEmpty();
+            } finally {
+                textLock.unlock();
+            }
+        }
+
+        String text() {
+            textLock.lock();
+            try {
+                return text.toString();
+            } finally {
+                textLock.unlock();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        httpClient.close();
+        httpExecutor.close();
+    }
+}
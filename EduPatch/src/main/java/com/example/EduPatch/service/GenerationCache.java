@@ -0,0 +1,139 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.GeneratedContent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Two-tier cache of model answers keyed by a hash of the normalized page text, so resubmitting the same
+ * (or the same modulo case and whitespace) text costs no model call. The in-memory tier is size-bounded;
+ * the MongoDB tier ({@code generated_content}) survives restarts and is shared by instances, and entries
+ * unused for {@code generation-cache.ttl} are dropped by a TTL index. Concurrent requests for the same key
+ * share one generation. A failing MongoDB only costs the persistence, never the answer.
+ */
+@Service
+public class GenerationCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationCache.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${generation-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${generation-cache.max-entries:2000}")
+    private long maxEntries;
+
+    @Value("${generation-cache.ttl:P30D}")
+    private Duration ttl;
+
+    private AsyncCache<String, GeneratedContent> entries;
+
+    @PostConstruct
+    void initCache() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                // Re-read from MongoDB now and then, which also keeps a hot entry from expiring there
+                .expireAfterWrite(Duration.ofHours(6))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "generated-content");
+    }
+
+    /**
+     * @param kind What is generated, e.g. "summary"
+     * @param generator Model and prompt version; changing it makes earlier answers unreachable
+     * @param content The page text the answer is about
+     * @param generate Produces the answer on a miss; its exceptions propagate and nothing is cached
+     */
+    public GeneratedContent get(String kind, String generator, String content, Supplier<GeneratedContent> generate) {
+        if (!enabled) {
+            return generate.get();
+        }
+        return ReadThrough.get(entries, keyOf(kind, generator, content), key -> loadOrGenerate(key, kind, generator, generate));
+    }
+
+    static String keyOf(String kind, String generator, String content) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            String input = kind + '\u0000' + generator + '\u0000' + normalize(content);
+            return HexFormat.of().formatHex(sha256.digest(input.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    // Pasted text differs mostly in case, line breaks, indentation and full-width or ligature characters
+    static String normalize(String content) {
+        String text = Normalizer.normalize(content, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(text).replaceAll(" ").strip();
+    }
+
+    private GeneratedContent loadOrGenerate(String key, String kind, String generator, Supplier<GeneratedContent> generate) {
+        GeneratedContent stored = findStored(key);
+        if (stored != null) {
+            meterRegistry.counter("generation_cache.lookups", "result", "stored").increment();
+            return stored;
+        }
+        meterRegistry.counter("generation_cache.lookups", "result", "generated").increment();
+        GeneratedContent generated = generate.get();
+        Instant now = Instant.now();
+        generated.setKey(key);
+        generated.setKind(kind);
+        generated.setGenerator(generator);
+        generated.setCreatedAt(now);
+        generated.setExpiresAt(now.plus(ttl));
+        try {
+            mongoTemplate.save(generated);
+        } catch (DataAccessException e) {
+            log.warn("Could not store generated {}: {}", kind, e.getMessage());
+        }
+        return generated;
+    }
+
+    private GeneratedContent findStored(String key) {
+        try {
+            GeneratedContent stored = mongoTemplate.findById(key, GeneratedContent.class);
+            if (stored != null) {
+                Instant expiresAt = Instant.now().plus(ttl);
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key)),
+                        new Update().set("expiresAt", expiresAt), GeneratedContent.class);
+                stored.setExpiresAt(expiresAt);
+            }
+            return stored;
+        } catch (DataAccessException e) {
+            log.warn("Generation cache lookup failed: {}", e.getMessage());
+            return null;
+        }
+    }
+}
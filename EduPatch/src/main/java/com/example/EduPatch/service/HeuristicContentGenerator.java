@@ -0,0 +1,98 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.GeneratedContent;
+import com.example.EduPatch.entity.Quiz;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canned, keyword-matched content. Used whenever the model can't answer in time (see {@link GeminiService}),
+ * and by the tests' Gemini stub as its answers. The topics and their answers are data, see {@link TopicClassifier}.
+ */
+@Component
+public class HeuristicContentGenerator {
+
+    // Generic quiz for unknown content
+    private static final List<GeneratedContent.Question> GENERIC_QUIZ = List.of(
+        new GeneratedContent.Question("What is the main topic discussed in this content?",
+            List.of("A. Basic principles", "B. Advanced concepts", "C. Practical applications", "D. All of the above"), "D"),
+        new GeneratedContent.Question("Which aspect is most emphasized in this content?",
+            List.of("A. Historical context", "B. Scientific principles", "C. Mathematical formulas", "D. Experimental procedures"), "B"),
+        new GeneratedContent.Question("What type of learning does this content support?",
+            List.of("A. Memorization only", "B. Conceptual understanding", "C. Practical skills", "D. Both B and C"), "D"),
+        new GeneratedContent.Question("How does this content relate to real-world applications?",
+            List.of("A. No practical relevance", "B. Limited applications", "C. Broad practical significance", "D. Only theoretical importance"), "C"),
+        new GeneratedContent.Question("What is the best approach to master this content?",
+            List.of("A. Rote memorization", "B. Understanding concepts and connections", "C. Skipping difficult parts", "D. Reading once"), "B")
+    );
+
+    @Autowired
+    private TopicClassifier topicClassifier;
+
+    /**
+     * Intelligent summary generation based on content analysis
+     */
+    public String generateSummary(String content) {
+        TopicClassifier.Topic topic = topicClassifier.classify(content);
+        if (topic != null) {
+            return topic.summary();
+        }
+        // Generic intelligent summary from the first two sentences, found without splitting the whole text;
+        // like content.split("\\. ") there are two if anything but more ". " follows the first one
+        int firstEnd = content.indexOf(". ");
+        if (firstEnd >= 0 && !onlySentenceBreaks(content, firstEnd + 2)) {
+            int secondEnd = content.indexOf(". ", firstEnd + 2);
+            String second = content.substring(firstEnd + 2, secondEnd >= 0 ? secondEnd : content.length());
+            return content.substring(0, firstEnd) + ". " + second + ". This concept is fundamental to understanding the broader principles in this field of study.";
+        }
+        return "This content covers important foundational concepts that are essential for understanding the subject matter and its practical applications.";
+    }
+
+    /**
+     * Intelligent explanation generation based on content analysis
+     */
+    public String generateExplanation(String content) {
+        TopicClassifier.Topic topic = topicClassifier.classify(content);
+        if (topic != null) {
+            return topic.explanation();
+        }
+        // Generic intelligent explanation
+        return "This topic represents a fundamental concept that builds upon previous knowledge and connects to broader principles in the field. Understanding these relationships helps develop a comprehensive grasp of the subject matter. The concepts presented here have practical applications and serve as building blocks for more advanced topics. Key relationships and cause-effect patterns within this content demonstrate the interconnected nature of scientific principles and their real-world implications.";
+    }
+
+    /**
+     * Generate intelligent quiz with 5 questions based on content. The quizzes are new, their option lists
+     * are shared and immutable.
+     */
+    public List<Quiz> generateQuiz(String content, String pageId) {
+        TopicClassifier.Topic topic = topicClassifier.classify(content);
+        List<GeneratedContent.Question> templates = topic != null ? topic.quiz() : GENERIC_QUIZ;
+        List<Quiz> quizzes = new ArrayList<>(templates.size());
+        for (GeneratedContent.Question template : templates) {
+            quizzes.add(createQuiz(pageId, template));
+        }
+        return quizzes;
+    }
+
+    private static boolean onlySentenceBreaks(String text, int from) {
+        for (int i = from; i < text.length(); i += 2) {
+            if (!text.startsWith(". ", i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Only the Quiz is new; the question, options and answer are the template's immutable values
+    private Quiz createQuiz(String pageId, GeneratedContent.Question template) {
+        Quiz quiz = new Quiz();
+        quiz.setPageId(pageId);
+        quiz.setQuestion(template.question());
+        quiz.setOptions(template.options());
+        quiz.setAnswer(template.answer());
+        return quiz;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.RateLimit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default, single-node store. Buckets live in a Caffeine map (internally striped) and each one is a
+ * single AtomicLong updated by compare-and-set, so checking a limit never takes a lock.
+ */
+@Component
+@ConditionalOnProperty(name = "login.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    @Value("${login.rate-limit.max-tracked-keys:100000}")
+    private long maxTrackedKeys;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, Bucket> buckets;
+
+    private record Bucket(AtomicLong theoreticalArrival, Duration period) {
+    }
+
+    @PostConstruct
+    void initCache() {
+        // A bucket left alone for its whole period is full again, so dropping it then loses nothing
+        buckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfter(Expiry.<String, Bucket>accessing((key, bucket) -> bucket.period()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "login-rate-limit");
+    }
+
+    @Override
+    public long tryAcquire(String key, RateLimit limit) {
+        AtomicLong theoreticalArrival = buckets.get(key, k -> new Bucket(new AtomicLong(Long.MIN_VALUE), limit.period()))
+                .theoreticalArrival();
+        long interval = limit.emissionIntervalNanos();
+        long burstWindow = limit.period().toNanos();
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long next = start + interval;
+            if (next - now > burstWindow) {
+                return next - now - burstWindow;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void reset(String key) {
+        buckets.invalidate(key);
+    }
+}
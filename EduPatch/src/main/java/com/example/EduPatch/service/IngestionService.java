@@ -0,0 +1,568 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.WorkflowRequest;
+import com.example.EduPatch.entity.IngestionJob;
+import com.example.EduPatch.entity.IngestionPage;
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.entity.TextBookPage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Creates many pages from one upload. At most {@code ingestion.parallelism} pages are generated at a
+ * time; finished pages queue up for the writer, which saves whatever is ready in one unordered bulk
+ * insert for the pages and one for their quizzes. When the writer falls behind, the queue fills and
+ * generation waits (backpressure). Each page's outcome is recorded in the {@link IngestionJob}, so a job
+ * can be polled, and resumed after failures or a restart without generating saved pages twice. The page
+ * texts wait in their own documents ({@link IngestionPage}) until their page is saved.
+ */
+@Service
+public class IngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionService.class);
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType ZIP = MediaType.parseMediaType("application/zip");
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    // Far more than any textbook page, and well within MongoDB's 16MB document limit
+    private static final int MAX_PAGE_LENGTH = 1_000_000;
+
+    @Autowired
+    private GeminiService geminiService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("contentGenerationExecutor")
+    private ExecutorService executor;
+
+    @Value("${ingestion.parallelism:4}")
+    private int parallelism;
+
+    @Value("${ingestion.batch-size:25}")
+    private int batchSize;
+
+    @Value("${ingestion.max-pages:1000}")
+    private int maxPages;
+
+    @Value("${ingestion.max-upload-size:20MB}")
+    private DataSize maxUploadSize;
+
+    @Value("${ingestion.lease:PT2M}")
+    private Duration lease;
+
+    // Jobs claimed by this instance; other instances are kept out by the job's lease
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    private record GeneratedPage(int index, TextBookPage page, List<Quiz> quizzes, String error) {
+    }
+
+    /**
+     * Reads the pages of an upload: a JSON array or NDJSON of {@link WorkflowRequest}s, or a zip of
+     * {@code .txt} files, one page each, ordered and numbered by the number in the file name.
+     * @param chapter Chapter for zip entries; defaults to the entry's folder name
+     * @throws IllegalArgumentException if the upload is too large, malformed or of another type
+     */
+    public List<WorkflowRequest> readUpload(InputStream body, MediaType contentType, String chapter) throws IOException {
+        byte[] upload = readLimited(body);
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return objectMapper.readValue(upload, new TypeReference<List<WorkflowRequest>>() {
+            });
+        }
+        if (NDJSON.isCompatibleWith(contentType)) {
+            return objectMapper.readerFor(WorkflowRequest.class).<WorkflowRequest>readValues(upload).readAll();
+        }
+        if (ZIP.isCompatibleWith(contentType)) {
+            return readZip(upload, chapter);
+        }
+        throw new IllegalArgumentException("Upload must be application/json, application/x-ndjson or application/zip");
+    }
+
+    /**
+     * Saves the job and starts generating its pages in the background.
+     * @throws IllegalArgumentException if there are no pages, too many, or one without content or too long
+     */
+    public IngestionJob submit(List<WorkflowRequest> pages, String createdBy) {
+        if (pages.isEmpty() || pages.size() > maxPages) {
+            throw new IllegalArgumentException("An upload must hold between 1 and " + maxPages + " pages");
+        }
+        String jobId = new ObjectId().toHexString();
+        List<IngestionJob.Item> items = new ArrayList<>(pages.size());
+        List<IngestionPage> texts = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            WorkflowRequest page = pages.get(i);
+            if (page == null || page.getContent() == null || page.getContent().isBlank()) {
+                throw new IllegalArgumentException("Page " + (i + 1) + " of the upload has no content");
+            }
+            if (page.getContent().length() > MAX_PAGE_LENGTH) {
+                throw new IllegalArgumentException("Page " + (i + 1) + " of the upload is longer than " + MAX_PAGE_LENGTH + " characters");
+            }
+            items.add(new IngestionJob.Item(page.getChapter(), page.getPageNumber(), IngestionJob.ItemStatus.PENDING, null, null));
+            texts.add(new IngestionPage(textId(jobId, i), jobId, page.getContent()));
+        }
+        // The texts first: a job is only visible once everything it needs is saved
+        mongoTemplate.insert(texts, IngestionPage.class);
+        Instant now = Instant.now();
+        IngestionJob job;
+        running.add(jobId);
+        try {
+            job = mongoTemplate.insert(new IngestionJob(jobId, createdBy, IngestionJob.Status.RUNNING,
+                    items.size(), 0, 0, now, now, new ObjectId().toHexString(), now.plus(lease), items));
+        } catch (DataAccessException e) {
+            running.remove(jobId);
+            removeQuietly(Query.query(Criteria.where("jobId").is(jobId)), IngestionPage.class);
+            throw e;
+        }
+        start(job);
+        return job;
+    }
+
+    /**
+     * @return The job with every page's outcome, or null if there is no such job
+     */
+    public IngestionJob getJob(String jobId) {
+        return mongoTemplate.findById(jobId, IngestionJob.class);
+    }
+
+    /**
+     * Generates the pages of a job that failed or were never written, e.g. because the instance stopped.
+     * Whatever an unfinished write left behind of such a page is removed first.
+     * @return The job, or null if there is no such job
+     * @throws IllegalStateException if the job is still running, here or in another instance
+     */
+    public IngestionJob resume(String jobId) {
+        // Claimed here before anything is read or changed, and in the database for the other instances
+        if (!running.add(jobId)) {
+            throw new IllegalStateException("Job is still running");
+        }
+        try {
+            IngestionJob job = claim(jobId);
+            if (job == null) {
+                running.remove(jobId);
+                return null;
+            }
+            resetUnfinished(job);
+            start(job);
+            return job;
+        } catch (RuntimeException e) {
+            running.remove(jobId);
+            throw e;
+        }
+    }
+
+    // Takes the job over unless a live run holds its lease
+    private IngestionJob claim(String jobId) {
+        Instant now = Instant.now();
+        Query claimable = Query.query(Criteria.where("_id").is(jobId).orOperator(
+                Criteria.where("status").ne(IngestionJob.Status.RUNNING),
+                Criteria.where("leaseUntil").lt(now),
+                Criteria.where("leaseUntil").exists(false)));
+        Update update = new Update()
+                .set("status", IngestionJob.Status.RUNNING)
+                .set("leaseOwner", new ObjectId().toHexString())
+                .set("leaseUntil", now.plus(lease))
+                .set("updatedAt", now);
+        IngestionJob job = mongoTemplate.findAndModify(claimable, update,
+                FindAndModifyOptions.options().returnNew(true), IngestionJob.class);
+        if (job == null && mongoTemplate.exists(Query.query(Criteria.where("_id").is(jobId)), IngestionJob.class)) {
+            throw new IllegalStateException("Job is still running");
+        }
+        return job;
+    }
+
+    // Makes the failed and unwritten pages of a claimed job pending again
+    private void resetUnfinished(IngestionJob job) {
+        Update update = new Update().set("failed", 0);
+        List<String> leftovers = new ArrayList<>();
+        List<IngestionJob.Item> items = job.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            IngestionJob.Item item = items.get(i);
+            if (item.getStatus() == IngestionJob.ItemStatus.DONE) {
+                continue;
+            }
+            if (item.getPageId() != null) {
+                leftovers.add(item.getPageId());
+                item.setPageId(null);
+                update.unset("items." + i + ".pageId");
+            }
+            if (item.getStatus() == IngestionJob.ItemStatus.FAILED) {
+                item.setStatus(IngestionJob.ItemStatus.PENDING);
+                item.setError(null);
+                update.set("items." + i + ".status", IngestionJob.ItemStatus.PENDING).unset("items." + i + ".error");
+            }
+        }
+        if (!leftovers.isEmpty()) {
+            removePages(leftovers);
+        }
+        updateHeld(job, update);
+        job.setFailed(0);
+    }
+
+    // Runs a job this instance has claimed (in running and by its lease)
+    private void start(IngestionJob job) {
+        try {
+            executor.execute(() -> {
+                try {
+                    process(job);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // e.g. MongoDB unreachable; the unwritten pages stay pending and the job can be resumed
+                    log.error("Ingestion job {} stopped: {}", job.getJobId(), e.getMessage());
+                } finally {
+                    running.remove(job.getJobId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.remove(job.getJobId());
+            throw e;
+        }
+    }
+
+    private void process(IngestionJob job) throws InterruptedException {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < job.getItems().size(); i++) {
+            if (job.getItems().get(i).getStatus() == IngestionJob.ItemStatus.PENDING) {
+                pending.add(i);
+            }
+        }
+        // Workers wait while the queue is full, so at most parallelism + batchSize generated pages are held.
+        // Every pending page delivers exactly one result, failed if need be, or the writer would wait forever.
+        BlockingQueue<GeneratedPage> generated = new ArrayBlockingQueue<>(batchSize);
+        Semaphore workers = new Semaphore(parallelism);
+        AtomicBoolean stopped = new AtomicBoolean();
+        executor.execute(() -> {
+            for (int index : pending) {
+                workers.acquireUninterruptibly();
+                if (stopped.get()) {
+                    return;
+                }
+                try {
+                    executor.execute(() -> {
+                        GeneratedPage page = new GeneratedPage(index, null, null, "Generation failed");
+                        try {
+                            page = generate(job, index);
+                        } finally {
+                            deliver(generated, page, stopped);
+                            workers.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    deliver(generated, new GeneratedPage(index, null, null, "Generation was rejected"), stopped);
+                    workers.release();
+                }
+            }
+        });
+
+        int failed = 0;
+        try {
+            List<GeneratedPage> batch = new ArrayList<>(batchSize);
+            int remaining = pending.size();
+            while (remaining > 0) {
+                // While generation is slow the lease is renewed, so that no other instance takes the job over
+                GeneratedPage first = generated.poll(lease.toNanos() / 4, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    updateHeld(job, new Update());
+                    continue;
+                }
+                // Whatever finished while the previous batch was written goes into the next one
+                batch.clear();
+                batch.add(first);
+                generated.drainTo(batch, batchSize - 1);
+                remaining -= batch.size();
+                failed += write(job, batch);
+            }
+        } finally {
+            stopped.set(true);
+        }
+        IngestionJob.Status status = failed == 0 ? IngestionJob.Status.COMPLETED : IngestionJob.Status.COMPLETED_WITH_FAILURES;
+        updateHeld(job, new Update().set("status", status).unset("leaseOwner").unset("leaseUntil"));
+        log.info("Ingestion job {} finished: {} of {} pages failed", job.getJobId(), failed, pending.size());
+    }
+
+    // Waits for room in the queue, even when interrupted, unless the writer gave up and nobody takes any more
+    private static void deliver(BlockingQueue<GeneratedPage> generated, GeneratedPage page, AtomicBoolean stopped) {
+        boolean interrupted = false;
+        while (!stopped.get()) {
+            try {
+                if (generated.offer(page, 1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private GeneratedPage generate(IngestionJob job, int index) {
+        try {
+            IngestionJob.Item item = job.getItems().get(index);
+            IngestionPage text = mongoTemplate.findById(textId(job.getJobId(), index), IngestionPage.class);
+            if (text == null) {
+                return new GeneratedPage(index, null, null, "The page text is missing");
+            }
+            String content = text.getContent();
+            TextBookPage page = new TextBookPage();
+            page.setChapter(item.getChapter());
+            page.setPageNumber(item.getPageNumber());
+            page.setContent(content);
+            page.setSummary(geminiService.generateSummary(content));
+            page.setExplanation(geminiService.generateExplanation(content));
+            page.setCreatedBy(job.getCreatedBy());
+            return new GeneratedPage(index, page, geminiService.generateQuiz(content, null), null);
+        } catch (RuntimeException e) {
+            return new GeneratedPage(index, null, null, "Generation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves a batch of pages with their quizzes and records the outcome of each in the job.
+     * @return The number of pages in the batch that failed
+     */
+    private int write(IngestionJob job, List<GeneratedPage> batch) {
+        String jobId = job.getJobId();
+        Map<Integer, String> errors = new HashMap<>();
+        List<GeneratedPage> saved = new ArrayList<>();
+        // Ids up front, so the quizzes can point at their page in the same batch, and recorded before
+        // anything is written, so a resume after a failure part way through can remove what was written
+        Update reserve = new Update();
+        for (GeneratedPage page : batch) {
+            if (page.error() != null) {
+                errors.put(page.index(), page.error());
+            } else {
+                page.page().setPageId(new ObjectId().toHexString());
+                reserve.set("items." + page.index() + ".pageId", page.page().getPageId());
+                saved.add(page);
+            }
+        }
+        // Also renews the lease, and stops here if another instance took the job over
+        updateHeld(job, reserve);
+
+        // Pages of failed items that could not be removed again; their ids stay recorded for resume
+        Set<Integer> leftovers = new HashSet<>();
+        try {
+            Set<Integer> failedPages = bulkInsert(TextBookPage.class, saved.stream().map(GeneratedPage::page).toList());
+            for (int i : failedPages) {
+                errors.put(saved.get(i).index(), "Could not save the page");
+            }
+            List<Quiz> quizzes = new ArrayList<>();
+            // For each quiz, the page it belongs to
+            List<GeneratedPage> owners = new ArrayList<>();
+            for (int i = 0; i < saved.size(); i++) {
+                if (!failedPages.contains(i)) {
+                    GeneratedPage page = saved.get(i);
+                    for (Quiz quiz : page.quizzes()) {
+                        quiz.setPageId(page.page().getPageId());
+                        quizzes.add(quiz);
+                        owners.add(page);
+                    }
+                }
+            }
+            Map<Integer, String> incomplete = new HashMap<>();
+            for (int i : bulkInsert(Quiz.class, quizzes)) {
+                incomplete.put(owners.get(i).index(), owners.get(i).page().getPageId());
+            }
+            if (!incomplete.isEmpty()) {
+                // Without its quiz set a page counts as failed; drop it so a resume starts clean
+                removePages(incomplete.values());
+                incomplete.keySet().forEach(index -> errors.put(index, "Could not save the quizzes"));
+            }
+        } catch (DataAccessException e) {
+            // Some of the batch may be saved already; take it all out again so that a resume starts clean
+            log.warn("Could not save {} ingested pages: {}", saved.size(), e.getMessage());
+            saved.forEach(page -> errors.put(page.index(), "Could not save the page: " + e.getMessage()));
+            try {
+                removePages(saved.stream().map(page -> page.page().getPageId()).toList());
+            } catch (DataAccessException cleanup) {
+                saved.forEach(page -> leftovers.add(page.index()));
+            }
+        }
+
+        Update update = new Update();
+        List<String> doneTexts = new ArrayList<>();
+        for (GeneratedPage page : batch) {
+            String item = "items." + page.index() + ".";
+            String error = errors.get(page.index());
+            if (error == null) {
+                update.set(item + "status", IngestionJob.ItemStatus.DONE);
+                doneTexts.add(textId(jobId, page.index()));
+            } else {
+                update.set(item + "status", IngestionJob.ItemStatus.FAILED).set(item + "error", error);
+                if (page.page() != null && !leftovers.contains(page.index())) {
+                    update.unset(item + "pageId");
+                }
+            }
+        }
+        update.inc("succeeded", batch.size() - errors.size()).inc("failed", errors.size());
+        updateHeld(job, update);
+        if (!doneTexts.isEmpty()) {
+            removeQuietly(Query.query(Criteria.where("_id").in(doneTexts)), IngestionPage.class);
+        }
+        return errors.size();
+    }
+
+    /**
+     * Updates the job if this run still holds its lease, and renews the lease.
+     * @throws IllegalStateException if the lease was lost, e.g. expired while MongoDB was unreachable
+     */
+    private void updateHeld(IngestionJob job, Update update) {
+        Instant now = Instant.now();
+        Query held = Query.query(Criteria.where("_id").is(job.getJobId()).and("leaseOwner").is(job.getLeaseOwner()));
+        if (!update.modifies("leaseUntil")) {
+            update.set("leaseUntil", now.plus(lease));
+        }
+        update.set("updatedAt", now);
+        if (mongoTemplate.updateFirst(held, update, IngestionJob.class).getMatchedCount() == 0) {
+            throw new IllegalStateException("Ingestion job " + job.getJobId() + " was taken over");
+        }
+    }
+
+    private void removePages(Collection<String> pageIds) {
+        mongoTemplate.remove(Query.query(Criteria.where("pageId").in(pageIds)), Quiz.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(pageIds)), TextBookPage.class);
+    }
+
+    // For data that is no longer needed; if it can't be removed now it only takes up space
+    private void removeQuietly(Query query, Class<?> type) {
+        try {
+            mongoTemplate.remove(query, type);
+        } catch (DataAccessException e) {
+            log.warn("Could not remove {} documents: {}", type.getSimpleName(), e.getMessage());
+        }
+    }
+
+    private static String textId(String jobId, int index) {
+        return jobId + ":" + index;
+    }
+
+    // One unordered bulk insert; returns the positions of the documents that could not be inserted
+    private Set<Integer> bulkInsert(Class<?> type, List<?> documents) {
+        if (documents.isEmpty()) {
+            return Set.of();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(documents).execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        }
+    }
+
+    private byte[] readLimited(InputStream body) throws IOException {
+        byte[] upload = body.readNBytes(Math.toIntExact(maxUploadSize.toBytes()) + 1);
+        if (upload.length > maxUploadSize.toBytes()) {
+            throw new IllegalArgumentException("Upload is larger than " + maxUploadSize);
+        }
+        return upload;
+    }
+
+    private List<WorkflowRequest> readZip(byte[] upload, String chapter) throws IOException {
+        record TextFile(String name, String folder, Long number, String text) {
+        }
+        List<TextFile> files = new ArrayList<>();
+        long unpacked = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(upload), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                String path = entry.getName();
+                String name = path.substring(path.lastIndexOf('/') + 1);
+                if (entry.isDirectory() || path.startsWith("__MACOSX/") || name.startsWith(".")
+                        || !name.toLowerCase(Locale.ROOT).endsWith(".txt")) {
+                    continue;
+                }
+                // Counted while unpacking, so a zip bomb is stopped early
+                ByteArrayOutputStream text = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read; (read = zip.read(buffer)) > 0; ) {
+                    unpacked += read;
+                    if (unpacked > maxUploadSize.toBytes()) {
+                        throw new IllegalArgumentException("Unpacked upload is larger than " + maxUploadSize);
+                    }
+                    text.write(buffer, 0, read);
+                }
+                if (files.size() >= maxPages) {
+                    throw new IllegalArgumentException("An upload must hold between 1 and " + maxPages + " pages");
+                }
+                int slash = path.lastIndexOf('/');
+                String folder = slash > 0 ? path.substring(path.lastIndexOf('/', slash - 1) + 1, slash) : null;
+                files.add(new TextFile(name, folder, lastNumber(name), text.toString(StandardCharsets.UTF_8)));
+            }
+        }
+        files.sort(Comparator.comparing(TextFile::folder, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(TextFile::number, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(TextFile::name));
+        List<WorkflowRequest> pages = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            TextFile file = files.get(i);
+            String pageNumber = String.valueOf(file.number() != null ? file.number() : i + 1);
+            pages.add(new WorkflowRequest(file.text(), chapter != null ? chapter : file.folder(), pageNumber));
+        }
+        return pages;
+    }
+
+    // "page-012.txt" is page 12
+    private static Long lastNumber(String name) {
+        Matcher matcher = NUMBER.matcher(name);
+        String last = null;
+        while (matcher.find()) {
+            last = matcher.group();
+        }
+        return last != null && last.length() < 18 ? Long.parseLong(last) : null;
+    }
+}
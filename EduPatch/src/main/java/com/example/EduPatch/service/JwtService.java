@@ -0,0 +1,173 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.AuthenticatedUser;
+import com.example.EduPatch.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues and verifies the HS256 access tokens admins use for {@code /user/**}.
+ * Tokens carry the user id, email and role, so a request is authenticated without loading the user.
+ */
+@Service
+public class JwtService {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtService.class);
+    private static final String ISSUER = "edupatch";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    @Value("${jwt.secret:}")
+    private String secret;
+
+    // Still accepted for verification while clients holding tokens signed before a secret rotation expire
+    @Value("${jwt.previous-secret:}")
+    private String previousSecret;
+
+    @Value("${jwt.ttl:PT12H}")
+    private Duration tokenTtl;
+
+    @Value("${jwt.verified-cache.max-entries:10000}")
+    private long maxVerifiedTokens;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Keys are derived once per secret; the kid header picks the verification key without trying each one
+    private final Map<String, SecretKey> verificationKeys = new HashMap<>();
+    private String signingKeyId;
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Tokens whose signature and claims were already checked; an entry lives exactly until its token expires
+    private Cache<String, AuthenticatedUser> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length == 0) {
+            log.warn("jwt.secret is not set; using a random key, so tokens won't survive a restart");
+            secretBytes = UUID.randomUUID().toString().concat(UUID.randomUUID().toString()).getBytes(StandardCharsets.UTF_8);
+        }
+        signingKeyId = addVerificationKey(secretBytes);
+        signingKey = verificationKeys.get(signingKeyId);
+        if (!previousSecret.isEmpty()) {
+            addVerificationKey(previousSecret.getBytes(StandardCharsets.UTF_8));
+        }
+
+        parser = Jwts.parserBuilder()
+                .requireIssuer(ISSUER)
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        SecretKey key = header.getKeyId() != null ? verificationKeys.get(header.getKeyId()) : null;
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxVerifiedTokens)
+                .expireAfter(Expiry.<String, AuthenticatedUser>creating((token, user) ->
+                        maxOf(Duration.ZERO, Duration.between(Instant.now(), user.expiresAt()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt-verified-tokens");
+    }
+
+    /**
+     * @return A signed access token for the user, valid for {@code jwt.ttl}
+     */
+    public String issueToken(User user) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyId)
+                .setIssuer(ISSUER)
+                .setSubject(user.getId())
+                .claim("email", user.getEmail())
+                .claim("role", user.getRole())
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(tokenTtl)))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    public Duration getTokenTtl() {
+        return tokenTtl;
+    }
+
+    /**
+     * Checks signature, issuer and expiry; a token seen before is answered from memory.
+     * @return The caller, or empty if the token is malformed, forged or expired
+     */
+    public Optional<AuthenticatedUser> verify(String token) {
+        AuthenticatedUser cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            AuthenticatedUser user = new AuthenticatedUser(claims.getSubject(), claims.get("email", String.class),
+                    claims.get("role", String.class), claims.getExpiration().toInstant());
+            verifiedTokens.put(token, user);
+            return Optional.of(user);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Duration maxOf(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private String addVerificationKey(byte[] secretBytes) {
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("JWT secrets must be at least " + MIN_SECRET_BYTES + " bytes long");
+        }
+        String keyId = keyIdOf(secretBytes);
+        verificationKeys.put(keyId, Keys.hmacShaKeyFor(secretBytes));
+        return keyId;
+    }
+
+    // Identifies a key without revealing anything useful about the secret
+    private static String keyIdOf(byte[] secretBytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secretBytes);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
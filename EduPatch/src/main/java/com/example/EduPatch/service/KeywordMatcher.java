@@ -0,0 +1,129 @@
+package com.example.EduPatch.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton: finds which of a fixed set of keywords occur in a text in one pass, however
+ * many keywords there are. Matching is case-insensitive and on substrings, like
+ * {@code text.toLowerCase().contains(keyword)} for every keyword, but without lowercasing or rescanning
+ * the text. Immutable once built, so safe to share between threads.
+ */
+final class KeywordMatcher {
+
+    // Per state: its transitions as sorted characters with their target states
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    // Per state: the keywords that end here, including those inherited along the failure links
+    private final int[][] outputs;
+    private final int keywordCount;
+
+    /**
+     * @param keywords Matched by index; blank keywords never match
+     */
+    KeywordMatcher(List<String> keywords) {
+        keywordCount = keywords.size();
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(new ArrayList<>());
+        for (int keyword = 0; keyword < keywords.size(); keyword++) {
+            String text = keywords.get(keyword).toLowerCase(Locale.ROOT);
+            if (text.isBlank()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                Integer next = trie.get(state).get(text.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    ends.add(new ArrayList<>());
+                    trie.get(state).put(text.charAt(i), next);
+                }
+                state = next;
+            }
+            ends.get(state).add(keyword);
+        }
+
+        int states = trie.size();
+        transitionChars = new char[states][];
+        transitionTargets = new int[states][];
+        for (int state = 0; state < states; state++) {
+            char[] chars = new char[trie.get(state).size()];
+            int i = 0;
+            for (char c : trie.get(state).keySet()) {
+                chars[i++] = c;
+            }
+            Arrays.sort(chars);
+            int[] targets = new int[chars.length];
+            for (i = 0; i < chars.length; i++) {
+                targets[i] = trie.get(state).get(chars[i]);
+            }
+            transitionChars[state] = chars;
+            transitionTargets[state] = targets;
+        }
+
+        // Breadth first, so a state's failure target is complete before its children need it
+        failure = new int[states];
+        outputs = new int[states][];
+        outputs[0] = toArray(ends.get(0));
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionTargets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            List<Integer> matched = new ArrayList<>(ends.get(state));
+            for (int i : outputs[failure[state]]) {
+                matched.add(i);
+            }
+            outputs[state] = toArray(matched);
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                int child = transitionTargets[state][i];
+                failure[child] = next(failure[state], transitionChars[state][i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return The indexes of the keywords that occur in the text
+     */
+    BitSet match(String text) {
+        BitSet found = new BitSet(keywordCount);
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            for (int keyword : outputs[state]) {
+                found.set(keyword);
+            }
+        }
+        return found;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int i = Arrays.binarySearch(transitionChars[state], c);
+            if (i >= 0) {
+                return transitionTargets[state][i];
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.EduPatch.service;
+
+import java.util.function.Consumer;
+
+/**
+ * A text-generation model. Implementations are thread-safe and enforce their own deadlines,
+ * so a call never blocks for longer than the implementation's configured limit.
+ */
+public interface LlmClient {
+
+    /**
+     * @param prompt The complete prompt
+     * @param jsonResponse True to ask the model for JSON instead of prose
+     * @return The generated text
+     * @throws LlmUnavailableException if no answer could be produced within the deadline
+     */
+    String generate(String prompt, boolean jsonResponse);
+
+    /**
+     * Generates prose like {@link #generate}, passing it to {@code onText} piece by piece while the model writes.
+     * If the call fails after some pieces were passed on, the exception is thrown anyway: the pieces are not
+     * the answer, only the returned text is.
+     * @param onText Called with each new piece of text, in order; may be called from another thread
+     * @return The complete generated text
+     * @throws LlmUnavailableException if no answer could be produced within the deadline
+     */
+    default String stream(String prompt, Consumer<String> onText) {
+        String text = generate(prompt, false);
+        onText.accept(text);
+        return text;
+    }
+}
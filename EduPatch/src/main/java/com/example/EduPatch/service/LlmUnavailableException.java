@@ -0,0 +1,15 @@
+package com.example.EduPatch.service;
+
+/**
+ * The model gave no usable answer: it failed, timed out, was too busy or is being skipped by the circuit breaker.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+
+    public LlmUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
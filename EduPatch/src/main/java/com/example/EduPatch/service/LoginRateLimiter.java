@@ -0,0 +1,71 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.RateLimit;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Throttles login attempts per client IP (against credential stuffing across many accounts) and per
+ * email (against guessing one account's password, which effectively locks it until the bucket refills).
+ * Runs before the user lookup and BCrypt compare, so rejected attempts cost neither.
+ * Decisions are counted in the {@code auth.login.rate_limit} counter, tagged by scope and outcome.
+ */
+@Service
+public class LoginRateLimiter {
+
+    @Autowired
+    private RateLimitStore store;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${login.rate-limit.ip.capacity:20}")
+    private int ipCapacity;
+
+    @Value("${login.rate-limit.ip.period:PT1M}")
+    private Duration ipPeriod;
+
+    @Value("${login.rate-limit.email.capacity:5}")
+    private int emailCapacity;
+
+    @Value("${login.rate-limit.email.period:PT5M}")
+    private Duration emailPeriod;
+
+    /**
+     * Records a login attempt.
+     * @return Empty if the attempt may proceed, otherwise how long the client should wait
+     */
+    public Optional<Duration> tryAttempt(String clientIp, String email) {
+        long wait = acquire("ip", clientIp, new RateLimit(ipCapacity, ipPeriod));
+        if (wait == 0 && email != null) {
+            wait = acquire("email", normalize(email), new RateLimit(emailCapacity, emailPeriod));
+        }
+        return wait == 0 ? Optional.empty() : Optional.of(Duration.ofNanos(wait));
+    }
+
+    /**
+     * Clears the per-email lockout once the account owner has signed in.
+     */
+    public void loginSucceeded(String email) {
+        if (email != null) {
+            store.reset("email:" + normalize(email));
+        }
+    }
+
+    private long acquire(String scope, String value, RateLimit limit) {
+        long wait = store.tryAcquire(scope + ":" + value, limit);
+        meterRegistry.counter("auth.login.rate_limit", "scope", scope, "outcome", wait == 0 ? "allowed" : "limited")
+                .increment();
+        return wait;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
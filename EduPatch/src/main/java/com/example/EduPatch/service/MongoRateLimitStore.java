@@ -0,0 +1,66 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.RateLimit;
+import com.example.EduPatch.entity.RateLimitBucket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store shared by every instance ({@code login.rate-limit.store=mongo}), for deployments with more than one node.
+ * Same algorithm as the in-memory store, with the compare-and-set done as a conditional update; idle
+ * buckets are removed by a TTL index.
+ */
+@Component
+@ConditionalOnProperty(name = "login.rate-limit.store", havingValue = "mongo")
+public class MongoRateLimitStore implements RateLimitStore {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public long tryAcquire(String key, RateLimit limit) {
+        long interval = TimeUnit.NANOSECONDS.toMillis(limit.emissionIntervalNanos());
+        long burstWindow = limit.period().toMillis();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long now = System.currentTimeMillis();
+            RateLimitBucket bucket = mongoTemplate.findById(key, RateLimitBucket.class);
+            long start = bucket == null || bucket.getTheoreticalArrival() < now ? now : bucket.getTheoreticalArrival();
+            long next = start + interval;
+            if (next - now > burstWindow) {
+                return TimeUnit.MILLISECONDS.toNanos(next - now - burstWindow);
+            }
+            if (bucket == null) {
+                try {
+                    mongoTemplate.insert(new RateLimitBucket(key, next, Instant.ofEpochMilli(next)));
+                    return 0;
+                } catch (DuplicateKeyException e) {
+                    continue; // another node created it first
+                }
+            }
+            Query unchanged = Query.query(Criteria.where("_id").is(key)
+                    .and("theoreticalArrival").is(bucket.getTheoreticalArrival()));
+            Update update = new Update().set("theoreticalArrival", next).set("expiresAt", Instant.ofEpochMilli(next));
+            if (mongoTemplate.updateFirst(unchanged, update, RateLimitBucket.class).getModifiedCount() > 0) {
+                return 0;
+            }
+        }
+        // Lost every race: the key is clearly busy, so treat it as limited for one refill interval
+        return limit.emissionIntervalNanos();
+    }
+
+    @Override
+    public void reset(String key) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(key)), RateLimitBucket.class);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.OfflineBundle;
+import com.example.EduPatch.dto.OfflinePageEntry;
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.entity.TextBookPage;
+import com.example.EduPatch.event.PageContentChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class OfflineBundleService {
+
+    @Autowired
+    private TextBookPageService textBookPageService;
+
+    @Autowired
+    private QuizService quizService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.offline-bundles.max-bytes:33554432}")
+    private long maxCacheBytes;
+
+    private AsyncCache<String, OfflineBundle> bundles;
+
+    @PostConstruct
+    void initCache() {
+        bundles = Caffeine.newBuilder()
+                .maximumWeight(maxCacheBytes)
+                .weigher((String pageId, OfflineBundle bundle) -> bundle.gzipped().length)
+                .expireAfterWrite(Duration.ofHours(1))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, bundles, "offline-bundles");
+    }
+
+    /**
+     * Returns the page's prebuilt bundle, building it on first use after a change.
+     * @return The bundle, or empty if the page does not exist
+     */
+    public Optional<OfflineBundle> getBundle(String pageId) {
+        return Optional.ofNullable(ReadThrough.get(bundles, pageId, this::build));
+    }
+
+    /**
+     * Loads a whole chapter for a pack: one query for the pages and one $in query for all their quizzes.
+     */
+    public List<OfflinePageEntry> loadChapter(String chapter) {
+        return toEntries(textBookPageService.getPagesByChapter(chapter));
+    }
+
+    /**
+     * Pairs pages with their quizzes (one $in query) and content versions.
+     */
+    public List<OfflinePageEntry> toEntries(List<TextBookPage> pages) {
+        if (pages.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<Quiz>> quizzesByPage = quizService.getQuizzesByPageIds(
+                pages.stream().map(TextBookPage::getPageId).toList());
+
+        List<OfflinePageEntry> entries = new ArrayList<>(pages.size());
+        for (TextBookPage page : pages) {
+            List<Quiz> quizzes = quizzesByPage.getOrDefault(page.getPageId(), List.of());
+            entries.add(new OfflinePageEntry(page, quizzes, versionOf(page, quizzes)));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes a chapter pack as NDJSON: a manifest line listing every page with its version, followed by
+     * one line per page the client does not already hold. Pages missing from the manifest were deleted.
+     * @param knownVersions Versions the client already has; those pages are listed but not resent
+     */
+    public void writeChapterPack(String chapter, List<OfflinePageEntry> entries, Set<String> knownVersions,
+                                 OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        List<Map<String, Object>> manifestPages = new ArrayList<>(entries.size());
+        for (OfflinePageEntry entry : entries) {
+            Map<String, Object> manifestPage = new LinkedHashMap<>();
+            manifestPage.put("pageId", entry.page().getPageId());
+            manifestPage.put("pageNumber", entry.page().getPageNumber());
+            manifestPage.put("version", entry.version());
+            manifestPage.put("included", !knownVersions.contains(entry.version()));
+            manifestPages.add(manifestPage);
+        }
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("type", "manifest");
+        manifest.put("chapter", chapter);
+        manifest.put("generatedAt", System.currentTimeMillis());
+        manifest.put("pages", manifestPages);
+        writeLine(writer, manifest, out);
+
+        for (OfflinePageEntry entry : entries) {
+            if (knownVersions.contains(entry.version())) {
+                continue;
+            }
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("type", "page");
+            line.put("version", entry.version());
+            line.put("page", entry.page());
+            line.put("quizzes", entry.quizzes());
+            writeLine(writer, line, out);
+        }
+        out.flush();
+    }
+
+    private static void writeLine(ObjectWriter writer, Object value, OutputStream out) throws IOException {
+        out.write(writer.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    @EventListener
+    public void onPageContentChanged(PageContentChangedEvent event) {
+        bundles.synchronous().invalidate(event.pageId());
+    }
+
+    public static byte[] gunzip(byte[] gzipped) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private OfflineBundle build(String pageId) {
+        Optional<TextBookPage> page = textBookPageService.getPageById(pageId);
+        if (page.isEmpty()) {
+            return null;
+        }
+        List<Quiz> quizzes = quizService.getQuizzesByPageId(pageId);
+
+        try {
+            String version = versionOf(page.get(), quizzes);
+
+            Map<String, Object> completeData = new LinkedHashMap<>();
+            completeData.put("page", page.get());
+            completeData.put("quizzes", quizzes);
+            completeData.put("cachedAt", System.currentTimeMillis());
+            completeData.put("version", version);
+
+            return new OfflineBundle(gzip(objectMapper.writeValueAsBytes(completeData)), version);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize offline bundle for page " + pageId, e);
+        }
+    }
+
+    /**
+     * Hashes only the content, so an unchanged page keeps its version across rebuilds and packs.
+     */
+    private String versionOf(TextBookPage page, List<Quiz> quizzes) {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("page", page);
+        content.put("quizzes", quizzes);
+        try {
+            return hash(objectMapper.writeValueAsBytes(content));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize page " + page.getPageId(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
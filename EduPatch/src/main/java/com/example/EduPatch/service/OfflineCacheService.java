@@ -1,13 +1,22 @@
 package com.example.EduPatch.service;
 
 import com.example.EduPatch.entity.OfflineCache;
+import com.example.EduPatch.event.OfflinePageAddedEvent;
 import com.example.EduPatch.repository.OfflineCacheRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class OfflineCacheService {
@@ -15,6 +24,12 @@ public class OfflineCacheService {
     @Autowired
     private OfflineCacheRepository offlineCacheRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<OfflineCache> getAllCaches() {
         return offlineCacheRepository.findAll();
     }
@@ -25,17 +40,40 @@ public class OfflineCacheService {
         return offlineCacheRepository.findByUserId(userId);
     }
 
-    public OfflineCache downloadPage(String userId, String pageId, String content) {
-        OfflineCache cache = offlineCacheRepository.findByUserIdAndPageId(userId, pageId);
-        if (cache == null) {
-            cache = new OfflineCache();
-            cache.setUserId(userId);
-            cache.setPageId(pageId);
-        }
-        cache.setDownloadedAt(LocalDateTime.now());
-        cache.setContent(content);
-        return offlineCacheRepository.save(cache);
+    public Set<String> getCachedPageIds(String userId) {
+        return offlineCacheRepository.findPageRefsByUserId(userId).stream()
+                .map(OfflineCache::getPageId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Records that a user keeps a page offline. Only a reference is stored; the page itself is
+     * shared and delivered through sync. Legacy per-user content copies are dropped on the way.
+     */
+    public OfflineCache downloadPage(String userId, String pageId) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("pageId").is(pageId));
+        Update update = new Update()
+                .set("downloadedAt", LocalDateTime.now())
+                .unset("content");
+        OfflineCache cache = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true).upsert(true), OfflineCache.class);
+        eventPublisher.publishEvent(new OfflinePageAddedEvent(userId, pageId));
+        return cache;
     }
+
+    /**
+     * Drops the per-user page content copies that older versions stored in every entry. Safe to run repeatedly.
+     * @return The number of entries that still had a copy
+     */
+    public long removeLegacyContent() {
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("content").exists(true)),
+                new Update().unset("content"), OfflineCache.class).getModifiedCount();
+    }
+
+    public boolean removePage(String userId, String pageId) {
+        return offlineCacheRepository.deleteByUserIdAndPageId(userId, pageId) > 0;
+    }
+
     public void deleteCache(String cacheId) {
         offlineCacheRepository.deleteById(cacheId);
     }
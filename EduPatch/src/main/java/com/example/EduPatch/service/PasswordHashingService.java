@@ -0,0 +1,60 @@
+package com.example.EduPatch.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Moves BCrypt work off request threads onto the bounded {@code passwordHashingExecutor}.
+ * Every method throws {@link RejectedExecutionException} straight away when that pool is saturated.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("passwordHashingExecutor")
+    private ExecutorService hashingExecutor;
+
+    // Results are handed over to a virtual thread, so callers can block (e.g. on MongoDB) in dependent
+    // stages without holding one of the few hashing threads
+    private final ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String hash) {
+        return submit(() -> passwordEncoder.matches(rawPassword, hash));
+    }
+
+    /**
+     * @return True for BCrypt hashes made with a lower cost than the current calibration
+     */
+    public boolean needsRehash(String hash) {
+        return passwordEncoder.upgradeEncoding(hash);
+    }
+
+    public static boolean isHashed(String password) {
+        return password.startsWith("$2a$") || password.startsWith("$2b$") || password.startsWith("$2y$");
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, hashingExecutor).thenApplyAsync(result -> result, callbackExecutor);
+    }
+
+    @PreDestroy
+    void close() {
+        callbackExecutor.close();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.EduPatch.service;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal streaming PDF writer for A4 sticker sheets. QR modules are drawn as vector
+ * rectangles, so no image encoding is needed, and only the current sheet is held in memory.
+ */
+class PdfStickerSheetWriter implements StickerSheetWriter {
+
+    private static final float PAGE_WIDTH = 595f;
+    private static final float PAGE_HEIGHT = 842f;
+    private static final float MARGIN = 36f;
+    private static final int COLUMNS = 3;
+    private static final int ROWS = 4;
+    private static final float QR_SIDE = 144f;
+    private static final float LABEL_SIZE = 9f;
+    private static final int MAX_LABEL_LENGTH = 40;
+
+    // Object numbers fixed up front; the page tree is written last once all kids are known
+    private static final int CATALOG_OBJECT = 1;
+    private static final int PAGES_OBJECT = 2;
+    private static final int FONT_OBJECT = 3;
+
+    private final CountingOutputStream out;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageObjects = new ArrayList<>();
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private int stickersOnPage;
+
+    PdfStickerSheetWriter(OutputStream out) throws IOException {
+        this.out = new CountingOutputStream(out);
+        offsets.add(0L);
+        write("%PDF-1.4\n%âãÏÓ\n");
+        writeObject(CATALOG_OBJECT, "<< /Type /Catalog /Pages " + PAGES_OBJECT + " 0 R >>");
+        reserveObject(PAGES_OBJECT);
+        writeObject(FONT_OBJECT, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>");
+    }
+
+    @Override
+    public void writeSticker(Sticker sticker) throws IOException {
+        int column = stickersOnPage % COLUMNS;
+        int row = stickersOnPage / COLUMNS;
+        float cellWidth = (PAGE_WIDTH - 2 * MARGIN) / COLUMNS;
+        float cellHeight = (PAGE_HEIGHT - 2 * MARGIN) / ROWS;
+        float cellLeft = MARGIN + column * cellWidth;
+        float cellTop = PAGE_HEIGHT - MARGIN - row * cellHeight;
+
+        float qrLeft = cellLeft + (cellWidth - QR_SIDE) / 2;
+        float qrTop = cellTop - (cellHeight - QR_SIDE - 2 * LABEL_SIZE) / 2;
+        drawModules(sticker.modules(), qrLeft, qrTop);
+        drawLabel(sticker.label(), cellLeft + cellWidth / 2, qrTop - QR_SIDE - 1.5f * LABEL_SIZE);
+
+        if (++stickersOnPage == COLUMNS * ROWS) {
+            flushPage();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (stickersOnPage > 0 || pageObjects.isEmpty()) {
+            flushPage();
+        }
+
+        StringBuilder kids = new StringBuilder();
+        for (int pageObject : pageObjects) {
+            kids.append(pageObject).append(" 0 R ");
+        }
+        writeObject(PAGES_OBJECT, "<< /Type /Pages /Kids [ " + kids + "] /Count " + pageObjects.size() + " >>");
+
+        long xrefOffset = out.count;
+        StringBuilder xref = new StringBuilder("xref\n0 ").append(offsets.size()).append("\n0000000000 65535 f \n");
+        for (int i = 1; i < offsets.size(); i++) {
+            xref.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets.get(i)));
+        }
+        xref.append("trailer\n<< /Size ").append(offsets.size()).append(" /Root ").append(CATALOG_OBJECT)
+                .append(" 0 R >>\nstartxref\n").append(xrefOffset).append("\n%%EOF\n");
+        write(xref.toString());
+        out.flush();
+    }
+
+    private void drawModules(BitMatrix modules, float left, float top) {
+        float scale = QR_SIDE / modules.getWidth();
+        // Map module coordinates onto the page once, so every rectangle is plain integers
+        StringBuilder ops = new StringBuilder(String.format(Locale.ROOT, "q %.4f 0 0 %.4f %.2f %.2f cm 0 g\n",
+                scale, -scale, left, top));
+        for (int y = 0; y < modules.getHeight(); y++) {
+            int x = 0;
+            while (x < modules.getWidth()) {
+                if (!modules.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int runStart = x;
+                while (x < modules.getWidth() && modules.get(x, y)) {
+                    x++;
+                }
+                ops.append(runStart).append(' ').append(y).append(' ').append(x - runStart).append(" 1 re\n");
+            }
+        }
+        ops.append("f Q\n");
+        content.writeBytes(ops.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void drawLabel(String label, float centerX, float baseline) {
+        String text = escape(label);
+        // Helvetica averages roughly half an em per character, close enough to centre short labels
+        float approximateWidth = text.length() * LABEL_SIZE * 0.5f;
+        String ops = String.format(Locale.ROOT, "BT /F1 %.1f Tf %.2f %.2f Td (%s) Tj ET\n",
+                LABEL_SIZE, centerX - approximateWidth / 2, baseline, text);
+        content.writeBytes(ops.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void flushPage() throws IOException {
+        int contentObject = offsets.size();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.size() / 4);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            content.writeTo(deflater);
+        }
+        byte[] stream = compressed.toByteArray();
+        beginObject(contentObject);
+        write("<< /Length " + stream.length + " /Filter /FlateDecode >>\nstream\n");
+        out.write(stream);
+        write("\nendstream\nendobj\n");
+
+        int pageObject = offsets.size();
+        writeObject(pageObject, "<< /Type /Page /Parent " + PAGES_OBJECT + " 0 R /MediaBox [0 0 "
+                + (int) PAGE_WIDTH + " " + (int) PAGE_HEIGHT + "] /Resources << /Font << /F1 "
+                + FONT_OBJECT + " 0 R >> >> /Contents " + contentObject + " 0 R >>");
+        pageObjects.add(pageObject);
+
+        content.reset();
+        stickersOnPage = 0;
+        out.flush();
+    }
+
+    private void reserveObject(int number) {
+        while (offsets.size() <= number) {
+            offsets.add(0L);
+        }
+    }
+
+    private void beginObject(int number) throws IOException {
+        reserveObject(number);
+        offsets.set(number, out.count);
+        write(number + " 0 obj\n");
+    }
+
+    private void writeObject(int number, String body) throws IOException {
+        beginObject(number);
+        write(body + "\nendobj\n");
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static String escape(String label) {
+        String text = label.length() > MAX_LABEL_LENGTH ? label.substring(0, MAX_LABEL_LENGTH - 3) + "..." : label;
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '(' || c == ')' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 32 || c > 126) {
+                // The standard Helvetica encoding only covers printable ASCII safely
+                escaped.append('?');
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.EduPatch.service;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streams one tall, 1-bit grayscale PNG with the stickers tiled left to right, top to bottom.
+ * Only a single row of tiles is buffered; scanlines are deflated into IDAT chunks as each row completes.
+ */
+class PngStickerSheetWriter implements StickerSheetWriter {
+
+    private static final int COLUMNS = 4;
+    private static final int TILE_SIZE = 300;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int stride = (COLUMNS * TILE_SIZE + 7) / 8;
+    private final byte[] band = new byte[stride * TILE_SIZE];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final DeflaterOutputStream idat;
+    private int tilesInBand;
+
+    PngStickerSheetWriter(OutputStream out, int stickerCount) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.idat = new DeflaterOutputStream(new IdatChunkStream(), deflater, IDAT_CHUNK_SIZE);
+        int rows = Math.max(1, (stickerCount + COLUMNS - 1) / COLUMNS);
+
+        this.out.write(SIGNATURE);
+        ByteBuffer header = ByteBuffer.allocate(13)
+                .putInt(COLUMNS * TILE_SIZE)
+                .putInt(rows * TILE_SIZE)
+                .put((byte) 1)  // bit depth
+                .put((byte) 0)  // grayscale
+                .put((byte) 0)  // deflate
+                .put((byte) 0)  // adaptive filtering
+                .put((byte) 0); // no interlace
+        writeChunk("IHDR", header.array(), header.capacity());
+        clearBand();
+    }
+
+    @Override
+    public void writeSticker(Sticker sticker) throws IOException {
+        drawModules(sticker.modules(), tilesInBand * TILE_SIZE);
+        if (++tilesInBand == COLUMNS) {
+            flushBand();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (tilesInBand > 0 || deflater.getTotalIn() == 0) {
+            flushBand();
+        }
+        idat.finish();
+        idat.flush();
+        deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    private void drawModules(BitMatrix modules, int tileLeft) {
+        int scale = Math.max(1, TILE_SIZE / modules.getWidth());
+        int padding = (TILE_SIZE - modules.getWidth() * scale) / 2;
+        for (int my = 0; my < modules.getHeight(); my++) {
+            for (int mx = 0; mx < modules.getWidth(); mx++) {
+                if (!modules.get(mx, my)) {
+                    continue;
+                }
+                for (int py = 0; py < scale; py++) {
+                    int y = padding + my * scale + py;
+                    for (int px = 0; px < scale; px++) {
+                        int x = tileLeft + padding + mx * scale + px;
+                        // In 1-bit grayscale a cleared bit is black
+                        band[y * stride + (x >> 3)] &= (byte) ~(0x80 >> (x & 7));
+                    }
+                }
+            }
+        }
+    }
+
+    private void flushBand() throws IOException {
+        for (int y = 0; y < TILE_SIZE; y++) {
+            idat.write(0); // filter type: none
+            idat.write(band, y * stride, stride);
+        }
+        clearBand();
+        tilesInBand = 0;
+        idat.flush();
+    }
+
+    private void clearBand() {
+        Arrays.fill(band, (byte) 0xFF);
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Receives deflated scanline data and emits it as IDAT chunks of bounded size.
+     */
+    private class IdatChunkStream extends OutputStream {
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int length;
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[length++] = (byte) b;
+            if (length == buffer.length) {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - length);
+                System.arraycopy(b, off, buffer, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == buffer.length) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (length > 0) {
+                writeChunk("IDAT", buffer, length);
+                length = 0;
+            }
+            out.flush();
+        }
+    }
+}
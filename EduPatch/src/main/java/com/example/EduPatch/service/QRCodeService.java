@@ -1,32 +1,127 @@
 package com.example.EduPatch.service;
 
+import com.example.EduPatch.dto.QRCodeImage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 @Service
 public class QRCodeService {
 
+    public static final int DEFAULT_SIZE = 300;
+    public static final int MIN_SIZE = 100;
+    public static final int MAX_SIZE = 1000;
+
     @Value("${app.frontend-url:https://edu-patch.vercel.app}")
     private String frontendUrl;
 
+    @Value("${qrcode.cache.max-bytes:16777216}")
+    private long maxCacheBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // QRCodeWriter keeps no state between encode calls, so one instance serves all threads
+    private final QRCodeWriter qrCodeWriter = new QRCodeWriter();
+
+    private Cache<RenderKey, QRCodeImage> cache;
+
+    private record RenderKey(String pageId, int size) {
+    }
+
+    @PostConstruct
+    void initCache() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxCacheBytes)
+                .weigher((RenderKey key, QRCodeImage image) -> image.bytes().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "qrcode");
+    }
+
     public byte[] generateQRCode(String pageId) throws WriterException, IOException {
+        return getQRCode(pageId, DEFAULT_SIZE).bytes();
+    }
+
+    /**
+     * Returns the QR code for a page, rendering it only on the first request for these parameters.
+     * @param pageId The page the QR code links to
+     * @param size Width and height of the image in pixels
+     * @return The PNG bytes and their ETag
+     */
+    public QRCodeImage getQRCode(String pageId, int size) {
+        return cache.get(new RenderKey(pageId, size), this::render);
+    }
+
+    /**
+     * Renders the default-size QR code ahead of the first scan so students never pay for encoding.
+     */
+    public void prerender(String pageId) {
+        getQRCode(pageId, DEFAULT_SIZE);
+    }
+
+    /**
+     * Drops every cached rendering of a page, e.g. after the page was deleted.
+     */
+    public void evict(String pageId) {
+        cache.asMap().keySet().removeIf(key -> key.pageId().equals(pageId));
+    }
+
+    /**
+     * Encodes a page's QR code at one pixel per module (quiet zone included), for callers that scale it themselves.
+     */
+    public BitMatrix encodeModules(String pageId) {
+        try {
+            return qrCodeWriter.encode(studentUrl(pageId), BarcodeFormat.QR_CODE, 0, 0);
+        } catch (WriterException e) {
+            throw new IllegalStateException("Failed to encode QR code for page " + pageId, e);
+        }
+    }
+
+    private String studentUrl(String pageId) {
         // Generate frontend URL for students
-        String studentUrl = frontendUrl + "/page/" + pageId;
-        
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(studentUrl, BarcodeFormat.QR_CODE, 300, 300);
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-        
-        return outputStream.toByteArray();
-    }
-}
\ No newline at end of file
+        return frontendUrl + "/page/" + pageId;
+    }
+
+    private QRCodeImage render(RenderKey key) {
+        try {
+            BitMatrix bitMatrix = qrCodeWriter.encode(studentUrl(key.pageId()), BarcodeFormat.QR_CODE, key.size(), key.size());
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+
+            byte[] bytes = outputStream.toByteArray();
+            return new QRCodeImage(bytes, etagOf(bytes));
+        } catch (WriterException e) {
+            throw new IllegalStateException("Failed to encode QR code for page " + key.pageId(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String etagOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
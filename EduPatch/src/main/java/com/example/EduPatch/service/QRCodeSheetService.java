@@ -0,0 +1,74 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.TextBookPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class QRCodeSheetService {
+
+    public enum Format { PDF, PNG }
+
+    // Large enough to keep every core busy, small enough that only a couple of batches are ever live
+    private static final int BATCH_SIZE = Math.max(24, Runtime.getRuntime().availableProcessors() * 8);
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    /**
+     * Writes a printable sheet with one QR sticker per page. QR codes are encoded in parallel one batch ahead
+     * of the writer, so output starts immediately and memory stays bounded by the batch size.
+     * @param pages Pages to print; only pageId, chapter and pageNumber are read
+     * @param format PDF (A4, labelled) or a single tiled PNG
+     * @param out The response stream, written to incrementally
+     */
+    public void writeSheet(List<TextBookPage> pages, Format format, OutputStream out) throws IOException {
+        List<TextBookPage> ordered = pages.stream()
+                .sorted(Comparator.comparing(TextBookPage::getChapter, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparingLong(QRCodeSheetService::pageNumberOf))
+                .toList();
+
+        StickerSheetWriter writer = format == Format.PDF
+                ? new PdfStickerSheetWriter(out)
+                : new PngStickerSheetWriter(out, ordered.size());
+
+        CompletableFuture<List<StickerSheetWriter.Sticker>> pending = encodeBatch(ordered, 0);
+        for (int from = 0; from < ordered.size(); from += BATCH_SIZE) {
+            List<StickerSheetWriter.Sticker> batch = pending.join();
+            int next = from + BATCH_SIZE;
+            pending = next < ordered.size() ? encodeBatch(ordered, next) : null;
+            for (StickerSheetWriter.Sticker sticker : batch) {
+                writer.writeSticker(sticker);
+            }
+        }
+        writer.finish();
+    }
+
+    private CompletableFuture<List<StickerSheetWriter.Sticker>> encodeBatch(List<TextBookPage> pages, int from) {
+        List<TextBookPage> batch = pages.subList(from, Math.min(from + BATCH_SIZE, pages.size()));
+        return CompletableFuture.supplyAsync(() -> batch.parallelStream()
+                .map(page -> new StickerSheetWriter.Sticker(labelOf(page), qrCodeService.encodeModules(page.getPageId())))
+                .toList());
+    }
+
+    private static String labelOf(TextBookPage page) {
+        String chapter = page.getChapter() != null ? page.getChapter() : "";
+        String pageNumber = page.getPageNumber() != null ? page.getPageNumber() : "?";
+        return chapter.isEmpty() ? "Page " + pageNumber : chapter + " - p. " + pageNumber;
+    }
+
+    private static long pageNumberOf(TextBookPage page) {
+        try {
+            return Long.parseLong(page.getPageNumber().trim());
+        } catch (RuntimeException e) {
+            // Non-numeric page numbers (e.g. "iv") go after the numbered ones
+            return Long.MAX_VALUE;
+        }
+    }
+}
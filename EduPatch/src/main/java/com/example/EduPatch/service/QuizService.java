@@ -1,19 +1,64 @@
 package com.example.EduPatch.service;
 
 import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.event.PageContentChangedEvent;
 import com.example.EduPatch.repository.QuizRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 @Service
 public class QuizService {
 
     @Autowired
     private QuizRepository quizRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
+    @Value("${cache.quizzes.max-bytes:33554432}")
+    private long maxCacheBytes;
+
+    // Quiz sets by pageId; bounded by approximate heap size, expiry guards against writes from other instances
+    private AsyncCache<String, List<Quiz>> quizzesByPage;
+
+    @PostConstruct
+    void initCache() {
+        quizzesByPage = Caffeine.newBuilder()
+                .maximumWeight(maxCacheBytes)
+                .weigher((String pageId, List<Quiz> quizzes) -> weightOf(quizzes))
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, quizzesByPage, "quizzes");
+    }
 
     public List<Quiz> getAllQuizzes() {
         return quizRepository.findAll();
@@ -22,29 +67,116 @@ public class QuizService {
         return quizRepository.findById(quizId);
     }
 
+    /**
+     * Read-through: concurrent misses for the same page share a single MongoDB query.
+     * Callers get their own copies, so the cached set is never mutated.
+     */
     public List<Quiz> getQuizzesByPageId(String pageId) {
-        return quizRepository.findByPageId(pageId);
+        return copyOf(ReadThrough.get(quizzesByPage, pageId, id -> List.copyOf(quizRepository.findByPageId(id))));
+    }
+
+    /**
+     * Loads the quizzes of many pages with a single $in query, grouped by pageId.
+     */
+    public Map<String, List<Quiz>> getQuizzesByPageIds(Collection<String> pageIds) {
+        return quizRepository.findByPageIdIn(pageIds).stream()
+                .collect(Collectors.groupingBy(Quiz::getPageId));
     }
 
     public Quiz createQuiz(Quiz quiz) {
-        return quizRepository.save(quiz);
+        Quiz savedQuiz = quizRepository.save(quiz);
+        evictPage(savedQuiz.getPageId());
+        return savedQuiz;
+    }
+
+    /**
+     * Saves a whole question set in one round trip (new quizzes are sent as a single insertMany).
+     */
+    public List<Quiz> createQuizzes(List<Quiz> quizzes) {
+        List<Quiz> savedQuizzes = quizRepository.saveAll(quizzes);
+        // One eviction and change event per page, not per question
+        savedQuizzes.stream().map(Quiz::getPageId).distinct().forEach(this::evictPage);
+        return savedQuizzes;
+    }
+
+    /**
+     * Replaces a page's whole quiz set. The delete and the insert run in one transaction,
+     * so readers see either the old set or the new one, never a half-written mix.
+     */
+    public List<Quiz> replaceQuizzesForPage(String pageId, List<Quiz> quizzes) {
+        for (Quiz quiz : quizzes) {
+            quiz.setQuizId(null);
+            quiz.setPageId(pageId);
+        }
+        List<Quiz> savedQuizzes = new TransactionTemplate(transactionManager).execute(status -> {
+            mongoTemplate.remove(Query.query(Criteria.where("pageId").is(pageId)), Quiz.class);
+            return List.copyOf(mongoTemplate.insertAll(quizzes));
+        });
+        // Evict only after commit, otherwise a concurrent read could re-cache the old set
+        evictPage(pageId);
+        return savedQuizzes;
     }
     public Quiz updateQuiz(String quizId, Quiz quizDetails) {
         Optional<Quiz> quiz = quizRepository.findById(quizId);
         if (quiz.isPresent()) {
             Quiz existingQuiz = quiz.get();
+            String previousPageId = existingQuiz.getPageId();
             existingQuiz.setPageId(quizDetails.getPageId());
             existingQuiz.setQuestion(quizDetails.getQuestion());
             existingQuiz.setOptions(quizDetails.getOptions());
             existingQuiz.setAnswer(quizDetails.getAnswer());
-            return quizRepository.save(existingQuiz);
+            Quiz savedQuiz = quizRepository.save(existingQuiz);
+            evictPage(previousPageId);
+            evictPage(savedQuiz.getPageId());
+            return savedQuiz;
         }
         return null;
     }
     public boolean deleteQuiz(String quizId) {
+        Optional<Quiz> quiz = quizRepository.findById(quizId);
+        if (quiz.isEmpty()) {
+            return false;
+        }
         quizRepository.deleteById(quizId);
-        return false;
+        evictPage(quiz.get().getPageId());
+        return true;
+    }
+
+    /**
+     * Drops the cached quiz set of a page, e.g. after its quizzes were changed or deleted elsewhere,
+     * and tells listeners that the page's content changed.
+     */
+    public void evictPage(String pageId) {
+        if (pageId != null) {
+            quizzesByPage.synchronous().invalidate(pageId);
+            eventPublisher.publishEvent(new PageContentChangedEvent(pageId));
+        }
     }
 
+    private static List<Quiz> copyOf(Collection<Quiz> quizzes) {
+        List<Quiz> copies = new ArrayList<>(quizzes.size());
+        for (Quiz quiz : quizzes) {
+            List<String> options = quiz.getOptions() != null ? new ArrayList<>(quiz.getOptions()) : null;
+            copies.add(new Quiz(quiz.getQuizId(), quiz.getPageId(), quiz.getQuestion(), options, quiz.getAnswer()));
+        }
+        return copies;
+    }
 
+    private static int weightOf(List<Quiz> quizzes) {
+        // Rough UTF-16 footprint of the strings plus per-object overhead
+        int weight = 64;
+        for (Quiz quiz : quizzes) {
+            weight += 96 + 2 * (length(quiz.getQuestion()) + length(quiz.getAnswer()));
+            if (quiz.getOptions() != null) {
+                for (String option : quiz.getOptions()) {
+                    weight += 40 + 2 * length(option);
+                }
+            }
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.dto.RateLimit;
+
+/**
+ * Holds token buckets by key. Implementations track each bucket as its "theoretical arrival time"
+ * (GCRA, equivalent to a token bucket), so one number per key is the whole state.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes one token from the key's bucket if there is one.
+     * @return 0 if the attempt is allowed, otherwise nanoseconds until a token will be available
+     */
+    long tryAcquire(String key, RateLimit limit);
+
+    /**
+     * Refills the key's bucket, e.g. after a successful login.
+     */
+    void reset(String key);
+}
@@ -0,0 +1,57 @@
+package com.example.EduPatch.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through for caches whose loader blocks on MongoDB. {@code Cache.get(key, loader)} runs the loader
+ * inside ConcurrentHashMap.compute, i.e. while holding a monitor, which pins a virtual thread to its
+ * carrier for the whole query. Here the caller loads outside any lock; concurrent misses for the same
+ * key wait for that one load instead of starting their own.
+ */
+final class ReadThrough {
+
+    private ReadThrough() {
+    }
+
+    /**
+     * @return The cached or freshly loaded value; null values are returned but not cached
+     */
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        while (true) {
+            // getIfPresent records the hit/miss stats behind the cache metrics
+            CompletableFuture<V> existing = cache.getIfPresent(key);
+            if (existing == null) {
+                CompletableFuture<V> pending = new CompletableFuture<>();
+                existing = cache.asMap().putIfAbsent(key, pending);
+                if (existing == null) {
+                    return load(cache, key, pending, loader);
+                }
+            }
+            try {
+                return existing.join();
+            } catch (CancellationException e) {
+                // The load we waited for failed; like a blocked Cache.get, try loading ourselves
+            }
+        }
+    }
+
+    private static <K, V> V load(AsyncCache<K, V> cache, K key, CompletableFuture<V> pending,
+                                 Function<? super K, ? extends V> loader) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            // Cancelled rather than failed: the caller reports the error, Caffeine would log it a second time
+            cache.asMap().remove(key, pending);
+            pending.cancel(false);
+            throw e;
+        }
+        // Completing with null drops the entry, so a null is never cached
+        pending.complete(value);
+        return value;
+    }
+}
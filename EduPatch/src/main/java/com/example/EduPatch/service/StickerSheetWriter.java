@@ -0,0 +1,19 @@
+package com.example.EduPatch.service;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.IOException;
+
+/**
+ * Incrementally writes QR stickers to a printable sheet. Stickers are written in order
+ * and flushed to the underlying stream as soon as a sheet (or tile row) is complete.
+ */
+interface StickerSheetWriter {
+
+    record Sticker(String label, BitMatrix modules) {
+    }
+
+    void writeSticker(Sticker sticker) throws IOException;
+
+    void finish() throws IOException;
+}
@@ -1,32 +1,97 @@
 package com.example.EduPatch.service;
 
+import com.example.EduPatch.dto.CursorPage;
+import com.example.EduPatch.entity.OfflineCache;
+import com.example.EduPatch.entity.Quiz;
 import com.example.EduPatch.entity.TextBookPage;
 import com.example.EduPatch.repository.TextBookPageRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.w3c.dom.Text;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 @Service
 public class TextBookPageService {
+    private static final String[] SUMMARY_FIELDS = {"chapter", "pageNumber", "createdBy"};
+
     @Autowired
     private TextBookPageRepository textBookPageRepository;
 
     @Autowired
-    private TextBookPageService textBookPageService;
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private QuizService quizService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.pages.max-bytes:67108864}")
+    private long maxCacheBytes;
+
+    // Hot pages by id (misses cached too, so bogus ids don't hit MongoDB); bounded by approximate heap size
+    private AsyncCache<String, Optional<TextBookPage>> pagesById;
+
+    @PostConstruct
+    void initCache() {
+        pagesById = Caffeine.newBuilder()
+                .maximumWeight(maxCacheBytes)
+                .weigher((String pageId, Optional<TextBookPage> page) -> page.map(TextBookPageService::weightOf).orElse(64))
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, pagesById, "pages");
+    }
 
     public List<TextBookPage> getAllPages(){
         return textBookPageRepository.findAll();
     }
 
+    /**
+     * Read-through: concurrent misses for the same page share a single MongoDB query.
+     * Callers get their own copy, so the cached page is never mutated.
+     */
     public Optional<TextBookPage> getPageById(String pageId) {
-        return textBookPageRepository.findById(pageId);
+        return ReadThrough.get(pagesById, pageId, textBookPageRepository::findById).map(TextBookPageService::copyOf);
     }
+    public List<TextBookPage> getPagesByIds(Collection<String> pageIds) {
+        return textBookPageRepository.findAllById(pageIds);
+    }
+
+    public Set<String> getExistingPageIds(Collection<String> pageIds) {
+        Query query = Query.query(Criteria.where("_id").in(pageIds));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, TextBookPage.class).stream()
+                .map(TextBookPage::getPageId)
+                .collect(Collectors.toSet());
+    }
+
     public List<TextBookPage>getPagesByChapter(String chapter){
         return textBookPageRepository.findPagesByChapter(chapter);
     }
@@ -35,8 +100,62 @@ public class TextBookPageService {
         return textBookPageRepository.findByCreatedBy(createdBy);
     }
 
+    public List<TextBookPage> getPageRefsByChapter(String chapter) {
+        return textBookPageRepository.findPageRefsByChapter(chapter);
+    }
+
+    public List<TextBookPage> getPageRefsByCreatedBy(String createdBy) {
+        return textBookPageRepository.findPageRefsByCreatedBy(createdBy);
+    }
+
+    /**
+     * Keyset pagination over pages in _id order, so each call is an index range scan
+     * no matter how deep the client has paged.
+     * @param createdBy Restrict to one admin's pages, or null for all pages
+     * @param cursor Opaque cursor from the previous page, or null to start at the beginning
+     * @param limit Maximum number of pages to return
+     * @param summaryOnly Only load pageId, chapter, pageNumber and createdBy, skipping the text fields
+     */
+    public CursorPage<TextBookPage> getPagesAfter(String createdBy, String cursor, int limit, boolean summaryOnly) {
+        Query query = new Query();
+        if (createdBy != null) {
+            query.addCriteria(Criteria.where("createdBy").is(createdBy));
+        }
+        if (cursor != null) {
+            query.addCriteria(Criteria.where("_id").gt(decodeCursor(cursor)));
+        }
+        if (summaryOnly) {
+            query.fields().include(SUMMARY_FIELDS);
+        }
+        // Fetch one extra document to learn whether another page follows
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit + 1);
+
+        List<TextBookPage> pages = mongoTemplate.find(query, TextBookPage.class);
+        if (pages.size() <= limit) {
+            return new CursorPage<>(pages, null);
+        }
+        List<TextBookPage> items = pages.subList(0, limit);
+        return new CursorPage<>(List.copyOf(items), encodeCursor(items.get(limit - 1).getPageId()));
+    }
+
+    private static String encodeCursor(String pageId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(pageId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ObjectId decodeCursor(String cursor) {
+        try {
+            return new ObjectId(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
     public TextBookPage createPage(TextBookPage textBookPage) {
-        return textBookPageRepository.save(textBookPage);
+        TextBookPage savedPage = textBookPageRepository.save(textBookPage);
+        evict(savedPage.getPageId());
+        // Render the sticker now so the first classroom scan is served from cache
+        qrCodeService.prerender(savedPage.getPageId());
+        return savedPage;
     }
     public TextBookPage updatePage(String pageId , TextBookPage pageDetails){
         Optional<TextBookPage>page =textBookPageRepository.findById(pageId);
@@ -48,25 +167,85 @@ public class TextBookPageService {
             existingPage.setSummary(pageDetails.getSummary());
             existingPage.setExplanation(pageDetails.getExplanation());
 
-            return textBookPageRepository.save(existingPage);
+            TextBookPage savedPage = textBookPageRepository.save(existingPage);
+            evict(pageId);
+            return savedPage;
         }
         return null;
     }
 
+    /**
+     * Deletes a page by id and cascades to its quizzes and offline caches.
+     * The delete itself is the existence check, so no documents are loaded.
+     */
     @Transactional
     public boolean deletePage(String pageId){
-        boolean removed = false;
-        try{
-            Optional<TextBookPage> page = textBookPageService.getPageById(pageId);
-            removed  = textBookPageService.getAllPages().removeIf(page1 -> page1.getPageId().equals(pageId));
-
-            if(removed){
-                textBookPageRepository.deleteById(pageId);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        DeleteResult result = mongoTemplate.remove(Query.query(Criteria.where("_id").is(pageId)), TextBookPage.class);
+        if (result.getDeletedCount() == 0) {
+            return false;
+        }
+        deleteDependents(List.of(pageId));
+        return true;
+    }
+
+    /**
+     * Retires a whole chapter (e.g. an old edition) together with its quizzes and offline caches.
+     * @return The number of pages deleted
+     */
+    @Transactional
+    public long deletePagesByChapter(String chapter) {
+        List<String> pageIds = textBookPageRepository.findPageRefsByChapter(chapter).stream()
+                .map(TextBookPage::getPageId)
+                .toList();
+        if (pageIds.isEmpty()) {
+            return 0;
         }
+        DeleteResult result = mongoTemplate.remove(Query.query(Criteria.where("_id").in(pageIds)), TextBookPage.class);
+        deleteDependents(pageIds);
+        return result.getDeletedCount();
+    }
 
-        return removed;
+    private void deleteDependents(List<String> pageIds) {
+        Query byPage = Query.query(Criteria.where("pageId").in(pageIds));
+        mongoTemplate.remove(byPage, Quiz.class);
+        mongoTemplate.remove(byPage, OfflineCache.class);
+        pageIds.forEach(qrCodeService::evict);
+        pageIds.forEach(this::evict);
+    }
+
+    /**
+     * Drops a page and its quiz set from the read caches. Inside a transaction this waits for the commit,
+     * otherwise a concurrent read could re-cache the old document before the change becomes visible.
+     */
+    private void evict(String pageId) {
+        Runnable eviction = () -> {
+            pagesById.synchronous().invalidate(pageId);
+            quizService.evictPage(pageId);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private static TextBookPage copyOf(TextBookPage page) {
+        return new TextBookPage(page.getPageId(), page.getChapter(), page.getPageNumber(), page.getContent(),
+                page.getSummary(), page.getExplanation(), page.getCreatedBy());
+    }
+
+    private static int weightOf(TextBookPage page) {
+        // Rough UTF-16 footprint of the text fields plus object overhead
+        int chars = 0;
+        for (String field : new String[]{page.getPageId(), page.getChapter(), page.getPageNumber(), page.getContent(),
+                page.getSummary(), page.getExplanation(), page.getCreatedBy()}) {
+            chars += field != null ? field.length() : 0;
+        }
+        return 128 + 2 * chars;
     }
 }
@@ -0,0 +1,108 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.GeneratedContent;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Finds the topic of a page for {@link HeuristicContentGenerator}. Topics, with their keywords and canned
+ * answers, come from a JSON data file ({@code heuristics.topics}); all keywords of all topics are matched
+ * in a single pass over the text, so adding topics doesn't slow classification down.
+ */
+@Component
+public class TopicClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(TopicClassifier.class);
+
+    /**
+     * @param keywords All of them must occur in the text (case-insensitively, also inside words)
+     */
+    public record Topic(String name, List<String> keywords, String summary, String explanation,
+                        List<GeneratedContent.Question> quiz) {
+        // Loaded once and shared by every answer, so immutable
+        public Topic {
+            keywords = keywords != null ? List.copyOf(keywords) : List.of();
+            quiz = quiz != null ? List.copyOf(quiz) : List.of();
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${heuristics.topics:classpath:heuristics/topics.json}")
+    private Resource topicsFile;
+
+    private List<Topic> topics;
+    private KeywordMatcher matcher;
+    // Per topic: the indexes of its keywords in the matcher
+    private int[][] topicKeywords;
+
+    // The summary, explanation and quiz of a page are generated from the same String instance, so weak
+    // (identity) keys let them share one classification without hashing or comparing the text
+    private final Cache<String, Classification> recent = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(256)
+            .build();
+
+    private record Classification(Topic topic) {
+    }
+
+    @PostConstruct
+    void loadTopics() throws IOException {
+        try (InputStream in = topicsFile.getInputStream()) {
+            topics = List.copyOf(objectMapper.readValue(in, new TypeReference<List<Topic>>() {
+            }));
+        }
+        List<String> keywords = new ArrayList<>();
+        topicKeywords = new int[topics.size()][];
+        for (int i = 0; i < topics.size(); i++) {
+            Topic topic = topics.get(i);
+            if (topic.keywords().isEmpty() || topic.keywords().stream().anyMatch(String::isBlank)) {
+                throw new IllegalStateException("Topic " + topic.name() + " in " + topicsFile + " needs non-blank keywords");
+            }
+            topicKeywords[i] = new int[topic.keywords().size()];
+            for (int k = 0; k < topic.keywords().size(); k++) {
+                topicKeywords[i][k] = keywords.size();
+                keywords.add(topic.keywords().get(k));
+            }
+        }
+        matcher = new KeywordMatcher(keywords);
+        log.info("Loaded {} heuristic topics with {} keywords from {}", topics.size(), keywords.size(), topicsFile);
+    }
+
+    /**
+     * @return The first topic, in file order, whose keywords all occur in the content, or null if none matches
+     */
+    public Topic classify(String content) {
+        // Classifying never blocks, so computing inside the cache's lock costs no more than the classification
+        return recent.get(content, text -> new Classification(firstMatch(matcher.match(text)))).topic();
+    }
+
+    private Topic firstMatch(BitSet found) {
+        for (int i = 0; i < topics.size(); i++) {
+            boolean all = true;
+            for (int keyword : topicKeywords[i]) {
+                all &= found.get(keyword);
+            }
+            if (all) {
+                return topics.get(i);
+            }
+        }
+        return null;
+    }
+}
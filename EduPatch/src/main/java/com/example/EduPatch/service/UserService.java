@@ -3,19 +3,29 @@ package com.example.EduPatch.service;
 import com.example.EduPatch.entity.User;
 import com.example.EduPatch.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserService {
 
+    public static final Set<String> PROFILE_FIELDS = Set.of("name", "email", "phone", "avatar");
+
     @Autowired
     private UserRepository userRepository;
-    
-    private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
     public Optional<User> getUserByEmail(String email){
         return userRepository.findByEmail(email);
@@ -34,7 +44,65 @@ public class UserService {
         return userRepository.findById(id);
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    /**
+     * Sets only the given profile fields with one targeted update; the password is never read or rewritten.
+     * @param expectedVersion Version the client last read, or null to skip the check
+     * @return The updated user without its password, or empty if there is no such user
+     * @throws IllegalArgumentException for fields outside {@link #PROFILE_FIELDS}
+     * @throws OptimisticLockingFailureException if the user changed since expectedVersion
+     */
+    public Optional<User> updateProfile(String userId, Map<String, String> changes, Long expectedVersion) {
+        Update update = new Update().inc("version", 1);
+        changes.forEach((field, value) -> {
+            if (!PROFILE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown profile field: " + field);
+            }
+            update.set(field, value);
+        });
+
+        Query query = byId(userId);
+        if (expectedVersion != null) {
+            query.addCriteria(VersionCriteria.matching(expectedVersion));
+        }
+        query.fields().exclude("password");
+        User updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), User.class);
+        if (updated == null && expectedVersion != null && mongoTemplate.exists(byId(userId), User.class)) {
+            throw new OptimisticLockingFailureException("User " + userId + " was modified since version " + expectedVersion);
+        }
+        return Optional.ofNullable(updated);
+    }
+
+    /**
+     * Loads just the stored password hash, e.g. to verify the current password before a change.
+     */
+    public Optional<String> getPasswordHash(String userId) {
+        Query query = byId(userId);
+        query.fields().include("password");
+        return Optional.ofNullable(mongoTemplate.findOne(query, User.class)).map(User::getPassword);
+    }
+
+    /**
+     * Stores a new password hash without touching the rest of the user document.
+     * @return false if there is no such user
+     */
+    public boolean updatePassword(String userId, String passwordHash) {
+        Update update = new Update()
+                .set("password", passwordHash)
+                .set("lastPasswordChange", LocalDateTime.now())
+                .inc("version", 1);
+        return mongoTemplate.updateFirst(byId(userId), update, User.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Swaps in a re-hashed form of the same password, unless the password was changed in the meantime.
+     * Unlike {@link #updatePassword} this is not a password change, so lastPasswordChange stays as is.
+     */
+    public boolean replacePasswordHash(String userId, String currentHash, String newHash) {
+        Query query = Query.query(Criteria.where("_id").is(userId).and("password").is(currentHash));
+        return mongoTemplate.updateFirst(query, new Update().set("password", newHash), User.class).getModifiedCount() > 0;
+    }
+
+    private static Query byId(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
     }
 }
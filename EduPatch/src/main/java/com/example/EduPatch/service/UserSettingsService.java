@@ -1,33 +1,285 @@
 package com.example.EduPatch.service;
 
+import com.example.EduPatch.entity.SettingsFlag;
+import com.example.EduPatch.entity.SystemSettings;
+import com.example.EduPatch.entity.User;
 import com.example.EduPatch.entity.UserSettings;
 import com.example.EduPatch.repository.UserSettingsRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Service
 public class UserSettingsService {
-    
+
     @Autowired
     private UserSettingsRepository userSettingsRepository;
-    
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.user-settings.max-entries:10000}")
+    private long maxCacheEntries;
+
+    // Settings by userId; every write goes through this service, expiry covers writes from other instances
+    private AsyncCache<String, UserSettings> settingsByUser;
+
+    @PostConstruct
+    void initCache() {
+        settingsByUser = Caffeine.newBuilder()
+                .maximumSize(maxCacheEntries)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, settingsByUser, "user-settings");
+    }
+
+    /**
+     * Read-through and write-free for existing users; defaults are only inserted the first
+     * time a user without settings is read. Callers get their own copy.
+     */
     public UserSettings getUserSettings(String userId) {
-        return userSettingsRepository.findByUserId(userId)
-            .orElse(createDefaultSettings(userId));
+        return copyOf(ReadThrough.get(settingsByUser, userId, id -> userSettingsRepository.findByUserId(id)
+                .map(this::migrateIfLegacy)
+                .orElseGet(() -> insertDefaultsIfAbsent(id))));
+    }
+
+    /**
+     * Replaces all of the user's settings in place (keyed by userId, so no duplicate documents) and refreshes the cache.
+     * @param expectedVersion Version the client last read, or null to overwrite unconditionally
+     * @throws OptimisticLockingFailureException if the settings changed since expectedVersion
+     */
+    public UserSettings updateUserSettings(UserSettings settings, Long expectedVersion) {
+        SystemSettings system = settings.getSystem();
+        Update update = new Update()
+                .set("flags", settings.effectiveFlags())
+                .set("cacheSize", system.cacheSize())
+                .set("language", system.language())
+                .inc("version", 1);
+        // Makes sure a current-format document exists, so the update never has to upsert
+        getUserSettings(settings.getUserId());
+        return applyVersioned(settings.getUserId(), update, expectedVersion);
     }
-    
-    public UserSettings updateUserSettings(UserSettings settings) {
-        return userSettingsRepository.save(settings);
+
+    /**
+     * Changes only the given settings, e.g. {@code {"appearance": {"darkMode": true}}}. On/off settings
+     * become a single {@code $bit} on the flags, so concurrent patches of different settings never clobber each other.
+     * @param changes Section name to the keys and new values within that section
+     * @param expectedVersion Version the client last read, or null to skip the check
+     * @throws IllegalArgumentException for unknown settings or values of the wrong type
+     * @throws OptimisticLockingFailureException if the settings changed since expectedVersion
+     */
+    public UserSettings patchUserSettings(String userId, Map<String, Map<String, Object>> changes, Long expectedVersion) {
+        int setBits = 0;
+        int clearBits = 0;
+        Document set = new Document();
+        for (Map.Entry<String, Map<String, Object>> section : changes.entrySet()) {
+            if (section.getValue() == null) {
+                throw new IllegalArgumentException("Unknown settings section: " + section.getKey());
+            }
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                String path = section.getKey() + "." + entry.getKey();
+                Optional<SettingsFlag> flag = SettingsFlag.find(section.getKey(), entry.getKey());
+                if (flag.isPresent()) {
+                    if (!(entry.getValue() instanceof Boolean on)) {
+                        throw new IllegalArgumentException(path + " must be true or false");
+                    }
+                    if (on) {
+                        setBits |= flag.get().mask();
+                    } else {
+                        clearBits |= flag.get().mask();
+                    }
+                } else if (path.equals("system.cacheSize") || path.equals("system.language")) {
+                    if (!(entry.getValue() instanceof String text) || text.isBlank()) {
+                        throw new IllegalArgumentException(path + " must be a non-empty string");
+                    }
+                    set.append(entry.getKey(), text);
+                } else {
+                    throw new IllegalArgumentException("Unknown setting: " + path);
+                }
+            }
+        }
+
+        Document update = new Document("$inc", new Document("version", 1));
+        if (!set.isEmpty()) {
+            update.append("$set", set);
+        }
+        if (setBits != 0 || clearBits != 0) {
+            // Built by hand: Update#bitwise keeps only one operation per field, and both are needed here
+            update.append("$bit", new Document("flags", new Document("and", ~clearBits).append("or", setBits)));
+        }
+        // $bit needs the flags field, so make sure a current-format document exists first
+        getUserSettings(userId);
+        return applyVersioned(userId, Update.fromDocument(update), expectedVersion);
     }
-    
-    // Add this public method that was missing
+
+    /**
+     * Stores the given settings for a new user unless the user already has some.
+     */
     public UserSettings createSettings(UserSettings settings) {
-        return userSettingsRepository.save(settings);
+        UserSettings saved = upsertIfAbsent(settings);
+        settingsByUser.synchronous().put(saved.getUserId(), saved);
+        return copyOf(saved);
+    }
+
+    /**
+     * Deletes the extra documents earlier versions created for the same user (every read used to insert
+     * defaults), keeping the oldest, so the unique userId index can be built.
+     * @return The number of documents removed
+     */
+    public long removeDuplicateSettings() {
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.sort(Sort.Direction.ASC, "_id"),
+                Aggregation.group("userId").first("_id").as("keep").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)));
+        long removed = 0;
+        for (Document group : mongoTemplate.aggregate(duplicates, UserSettings.class, Document.class)) {
+            List<Object> extraIds = new ArrayList<>(group.getList("ids", Object.class));
+            extraIds.remove(group.get("keep"));
+            removed += mongoTemplate.remove(Query.query(Criteria.where("_id").in(extraIds)), UserSettings.class)
+                    .getDeletedCount();
+            settingsByUser.synchronous().invalidate(group.getString("_id"));
+        }
+        return removed;
     }
-    
-    private UserSettings createDefaultSettings(String userId) {
+
+    /**
+     * Converts settings documents from the old format (four maps of boxed values) to flags, and drops the
+     * second copy of the settings that used to be embedded in every user document. Safe to run repeatedly.
+     * @return The number of settings documents converted
+     */
+    public long migrateLegacySettings() {
+        long converted;
+        Query legacy = Query.query(Criteria.where("flags").exists(false));
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, settingsCollection())) {
+            converted = documents.mapToLong(this::convertLegacy).sum();
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("settings").exists(true)),
+                new Update().unset("settings"), User.class);
+        settingsByUser.synchronous().invalidateAll();
+        return converted;
+    }
+
+    private UserSettings migrateIfLegacy(UserSettings settings) {
+        if (settings.getFlags() != null) {
+            return settings;
+        }
+        Document legacy = mongoTemplate.findOne(byUserId(settings.getUserId()), Document.class, settingsCollection());
+        if (legacy != null) {
+            convertLegacy(legacy);
+        }
+        return userSettingsRepository.findByUserId(settings.getUserId()).orElse(settings);
+    }
+
+    private long convertLegacy(Document legacy) {
+        int flags = 0;
+        for (SettingsFlag flag : SettingsFlag.values()) {
+            Object value = sectionOf(legacy, flag.getSection()).get(flag.getKey());
+            flags = flag.apply(flags, value instanceof Boolean on ? on : flag.getDefaultValue());
+        }
+        Document system = sectionOf(legacy, "system");
+        Update update = new Update()
+                .set("flags", flags)
+                .set("cacheSize", system.get("cacheSize") instanceof String cacheSize ? cacheSize : SystemSettings.DEFAULT_CACHE_SIZE)
+                .set("language", system.get("language") instanceof String language ? language : SystemSettings.DEFAULT_LANGUAGE)
+                .unset("notifications")
+                .unset("appearance")
+                .unset("privacy")
+                .unset("system");
+        // Guarded on the old format, so a document converted or updated concurrently is left alone
+        Query query = Query.query(Criteria.where("_id").is(legacy.get("_id")).and("flags").exists(false));
+        return mongoTemplate.updateFirst(query, update, settingsCollection()).getModifiedCount();
+    }
+
+    private static Document sectionOf(Document legacy, String section) {
+        return legacy.get(section) instanceof Document document ? document : new Document();
+    }
+
+    private String settingsCollection() {
+        return mongoTemplate.getCollectionName(UserSettings.class);
+    }
+
+    private UserSettings applyVersioned(String userId, Update update, Long expectedVersion) {
+        Query query = byUserId(userId);
+        if (expectedVersion != null) {
+            query.addCriteria(VersionCriteria.matching(expectedVersion));
+        }
+        UserSettings saved = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), UserSettings.class);
+        if (saved == null) {
+            // Our copy may be stale, so the next read goes back to MongoDB
+            settingsByUser.synchronous().invalidate(userId);
+            if (expectedVersion == null) {
+                throw new IllegalStateException("Settings of user " + userId + " were deleted concurrently");
+            }
+            throw new OptimisticLockingFailureException("Settings of user " + userId
+                    + " were modified since version " + expectedVersion);
+        }
+        settingsByUser.synchronous().put(userId, saved);
+        return copyOf(saved);
+    }
+
+    private UserSettings insertDefaultsIfAbsent(String userId) {
         UserSettings settings = new UserSettings();
         settings.setUserId(userId);
-        return userSettingsRepository.save(settings);
+        return upsertIfAbsent(settings);
+    }
+
+    // $setOnInsert makes this a no-op for an existing document, so racing first reads can't overwrite or duplicate
+    private UserSettings upsertIfAbsent(UserSettings settings) {
+        SystemSettings system = settings.getSystem();
+        Update update = new Update()
+                .setOnInsert("flags", settings.effectiveFlags())
+                .setOnInsert("cacheSize", system.cacheSize())
+                .setOnInsert("language", system.language())
+                .setOnInsert("version", 0L);
+        try {
+            return migrateIfLegacy(mongoTemplate.findAndModify(byUserId(settings.getUserId()), update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), UserSettings.class));
+        } catch (DuplicateKeyException e) {
+            // Two concurrent upserts can both miss; the unique userId index lets one win, the loser re-reads
+            return userSettingsRepository.findByUserId(settings.getUserId()).orElseThrow(() -> e);
+        }
+    }
+
+    private static Query byUserId(String userId) {
+        return Query.query(Criteria.where("userId").is(userId));
+    }
+
+    // Only scalars and immutable records inside, so a field-by-field copy is a full copy
+    private static UserSettings copyOf(UserSettings settings) {
+        UserSettings copy = new UserSettings();
+        copy.setId(settings.getId());
+        copy.setUserId(settings.getUserId());
+        copy.setVersion(settings.getVersion());
+        copy.setFlags(settings.getFlags());
+        copy.setCacheSize(settings.getCacheSize());
+        copy.setLanguage(settings.getLanguage());
+        return copy;
     }
-}
\ No newline at end of file
+}
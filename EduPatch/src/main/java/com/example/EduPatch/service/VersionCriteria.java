@@ -0,0 +1,19 @@
+package com.example.EduPatch.service;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Optimistic-concurrency filter for documents carrying a {@code version} counter.
+ */
+final class VersionCriteria {
+
+    private VersionCriteria() {
+    }
+
+    static Criteria matching(long expectedVersion) {
+        // Documents written before versioning have no version field and count as version 0
+        return expectedVersion == 0
+                ? new Criteria().orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false))
+                : Criteria.where("version").is(expectedVersion);
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.EduPatch;
+
+import com.example.EduPatch.entity.GeneratedContent;
+import com.example.EduPatch.entity.Quiz;
+import com.example.EduPatch.service.GeminiClient;
+import com.example.EduPatch.service.GeminiService;
+import com.example.EduPatch.service.GeminiStubServer;
+import com.example.EduPatch.service.GenerationCache;
+import com.example.EduPatch.service.HeuristicContentGenerator;
+import com.example.EduPatch.service.TopicClassifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the real HTTP client against {@link GeminiStubServer}, so no network or API key is needed.
+ * MongoDB is mocked; by default it has no stored answers.
+ */
+@SpringBootTest(classes = {GeminiService.class, GeminiClient.class, GeminiStubServer.class,
+        HeuristicContentGenerator.class, TopicClassifier.class, GenerationCache.class, GeminiServiceTests.Beans.class}, properties = {
+        "gemini.api.key=test-key",
+        "gemini.publisher.model=test-model",
+        "gemini.stub.enabled=true",
+        "gemini.request-timeout=PT1S",
+        "gemini.deadline=PT2S",
+        "gemini.retry.max-attempts=3",
+        "gemini.retry.initial-backoff=PT0.01S",
+        "gemini.retry.max-backoff=PT0.05S",
+        "gemini.circuit-breaker.failure-threshold=2",
+        "gemini.circuit-breaker.open-duration=PT1M"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class GeminiServiceTests {
+
+    private static final String CONTENT = "Photosynthesis converts light energy into chemical energy.";
+
+    private static final int STUB_PORT = freePort();
+
+    @TestConfiguration
+    static class Beans {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void stubEndpoint(DynamicPropertyRegistry registry) {
+        registry.add("gemini.stub.port", () -> STUB_PORT);
+        registry.add("gemini.base-url", () -> "http://localhost:" + STUB_PORT + "/v1beta");
+    }
+
+    @MockitoBean
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private GeminiService geminiService;
+
+    @Autowired
+    private GeminiStubServer stub;
+
+    @Autowired
+    private HeuristicContentGenerator heuristics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void resetStub() {
+        stub.setLatency(Duration.ZERO);
+        stub.failNextRequests(0, 503);
+    }
+
+    @Test
+    void usesTheModelAnswer() {
+        List<Quiz> quizzes = geminiService.generateQuiz(CONTENT, "page-1");
+
+        assertEquals(1, stub.getRequestCount());
+        assertEquals(5, quizzes.size());
+        assertTrue(quizzes.stream().allMatch(quiz -> "page-1".equals(quiz.getPageId()) && quiz.getOptions().size() == 4));
+        assertEquals(0, fallbacks());
+    }
+
+    @Test
+    void retriesServerErrors() {
+        stub.failNextRequests(2, 503);
+
+        String summary = geminiService.generateSummary(CONTENT);
+
+        assertEquals(3, stub.getRequestCount());
+        assertTrue(summary.contains("Photosynthesis"));
+        assertEquals(0, fallbacks());
+    }
+
+    @Test
+    void fallsBackWhenTheModelIsTooSlow() {
+        stub.setLatency(Duration.ofSeconds(5));
+        long start = System.nanoTime();
+
+        String explanation = geminiService.generateExplanation(CONTENT);
+
+        assertEquals(heuristics.generateExplanation(CONTENT), explanation);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(3)) < 0);
+        assertEquals(1, fallbacks());
+    }
+
+    @Test
+    void stopsCallingAfterRepeatedFailures() {
+        stub.failNextRequests(Integer.MAX_VALUE, 500);
+
+        geminiService.generateSummary(CONTENT);
+        geminiService.generateSummary(CONTENT);
+        int requestsBeforeOpen = stub.getRequestCount();
+        String summary = geminiService.generateSummary(CONTENT);
+
+        assertEquals(requestsBeforeOpen, stub.getRequestCount());
+        assertEquals(heuristics.generateSummary(CONTENT), summary);
+        assertEquals(3, fallbacks());
+    }
+
+    @Test
+    void fallsBackOnClientErrorsWithoutRetrying() {
+        stub.failNextRequests(1, 400);
+
+        List<Quiz> quizzes = geminiService.generateQuiz(CONTENT, "page-1");
+
+        assertEquals(1, stub.getRequestCount());
+        assertEquals(heuristics.generateQuiz(CONTENT, "page-1").size(), quizzes.size());
+        assertEquals(1, fallbacks());
+    }
+
+    @Test
+    void clientErrorsDontOpenTheCircuit() {
+        stub.failNextRequests(2, 400);
+
+        geminiService.generateSummary(CONTENT);
+        geminiService.generateSummary(CONTENT);
+        geminiService.generateSummary(CONTENT);
+
+        assertEquals(3, stub.getRequestCount());
+        assertEquals(2, fallbacks());
+    }
+
+    @Test
+    void configurationErrorsOpenTheCircuit() {
+        stub.failNextRequests(Integer.MAX_VALUE, 403);
+
+        geminiService.generateSummary(CONTENT);
+        geminiService.generateSummary(CONTENT);
+        geminiService.generateSummary(CONTENT);
+
+        assertEquals(2, stub.getRequestCount());
+        assertEquals(3, fallbacks());
+    }
+
+    @Test
+    void streamsTheModelAnswer() {
+        stub.setStreamInterval(Duration.ofMillis(30));
+        List<String> pieces = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        List<Long> firstPieceAt = new CopyOnWriteArrayList<>();
+
+        String explanation = geminiService.generateExplanation(CONTENT, piece -> {
+            firstPieceAt.add(System.nanoTime() - start);
+            pieces.add(piece);
+        });
+
+        assertTrue(pieces.size() > 1);
+        assertEquals(explanation, String.join("", pieces).strip());
+        assertTrue(Duration.ofNanos(firstPieceAt.get(0)).compareTo(Duration.ofNanos(System.nanoTime() - start).dividedBy(2)) < 0);
+        assertEquals(0, fallbacks());
+    }
+
+    @Test
+    void reusesAnswersForResubmittedText() throws Exception {
+        stub.setLatency(Duration.ofMillis(200));
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> summaries = List.of(
+                    requests.submit(() -> geminiService.generateSummary(CONTENT)),
+                    requests.submit(() -> geminiService.generateSummary(CONTENT)),
+                    requests.submit(() -> geminiService.generateSummary(CONTENT)));
+            for (Future<String> summary : summaries) {
+                assertEquals(summaries.get(0).get(), summary.get());
+            }
+        }
+        geminiService.generateSummary("  PHOTOSYNTHESIS converts light energy\n into   chemical energy. ");
+
+        assertEquals(1, stub.getRequestCount());
+        verify(mongoTemplate).save(any(GeneratedContent.class));
+
+        geminiService.generateExplanation(CONTENT);
+        assertEquals(2, stub.getRequestCount());
+    }
+
+    @Test
+    void usesStoredAnswers() {
+        GeneratedContent stored = GeneratedContent.ofText("Stored summary");
+        when(mongoTemplate.findById(anyString(), eq(GeneratedContent.class))).thenReturn(stored);
+
+        assertEquals("Stored summary", geminiService.generateSummary(CONTENT));
+        assertEquals(0, stub.getRequestCount());
+    }
+
+    private double fallbacks() {
+        return meterRegistry.find("gemini.fallbacks").counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.EduPatch;
+
+import com.example.EduPatch.config.MongoIndexInitializer;
+import com.example.EduPatch.config.QueryPlanVerifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Needs a throwaway MongoDB, e.g. {@code MONGODB_TEST_URI=mongodb://localhost:27017}; skipped otherwise.
+ */
+@SpringBootTest(properties = {
+        "spring.data.mongodb.uri=${MONGODB_TEST_URI}",
+        "spring.data.mongodb.database=edupatch_query_plans",
+        "app.mongo.ensure-indexes=false"
+})
+@EnabledIfEnvironmentVariable(named = "MONGODB_TEST_URI", matches = ".+")
+class QueryPlanVerificationTests {
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    private QueryPlanVerifier queryPlanVerifier;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void everyRepositoryQueryUsesAnIndex() {
+        assertEquals(0, mongoIndexInitializer.ensureIndexes());
+        assertTrue(queryPlanVerifier.findCollectionScans().isEmpty(),
+                () -> "Collection scans: " + queryPlanVerifier.findCollectionScans());
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        mongoTemplate.getDb().drop();
+    }
+}
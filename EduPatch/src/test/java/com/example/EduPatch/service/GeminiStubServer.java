@@ -0,0 +1,175 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.Quiz;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Gemini {@code generateContent} and {@code streamGenerateContent} APIs, answering with
+ * {@link HeuristicContentGenerator} output (streamed a few words per event), so {@link GeminiClient} can be tested
+ * without network or key: point {@code gemini.base-url} at {@link #getBaseUrl()}. Latency and failures can be
+ * injected to exercise deadlines, retries and the circuit breaker. Listens on localhost only; test code only,
+ * enabled with {@code gemini.stub.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "gemini.stub.enabled", havingValue = "true")
+public class GeminiStubServer {
+
+    @Autowired
+    private HeuristicContentGenerator heuristics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${gemini.stub.port:8089}")
+    private int port;
+
+    @Value("${gemini.stub.latency:PT0S}")
+    private volatile Duration latency;
+
+    // Between two events of a streamed answer
+    @Value("${gemini.stub.stream-interval:PT0.05S}")
+    private volatile Duration streamInterval;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int failureStatus = 503;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    @PostConstruct
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/v1beta/models/", this::handle);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1beta";
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setStreamInterval(Duration streamInterval) {
+        this.streamInterval = streamInterval;
+    }
+
+    /**
+     * Answers the next {@code count} requests with the given HTTP status instead of content.
+     */
+    public void failNextRequests(int count, int status) {
+        failureStatus = status;
+        failuresLeft.set(count);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            requestCount.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            boolean stream = path.endsWith(":streamGenerateContent");
+            if (!"POST".equals(exchange.getRequestMethod()) || !(stream || path.endsWith(":generateContent"))) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            JsonNode request = objectMapper.readTree(body);
+            sleep(latency);
+            if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                exchange.sendResponseHeaders(failureStatus, -1);
+                return;
+            }
+            String prompt = request.path("contents").path(0).path("parts").path(0).path("text").asText();
+            boolean json = "application/json".equals(request.path("generationConfig").path("responseMimeType").asText());
+            if (stream) {
+                stream(exchange, answer(prompt, json));
+                return;
+            }
+            byte[] response = responseFor(answer(prompt, json)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        }
+    }
+
+    private void stream(HttpExchange exchange, String answer) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            String[] words = answer.split("(?<= )");
+            for (int i = 0; i < words.length; i += 4) {
+                if (i > 0) {
+                    sleep(streamInterval);
+                }
+                String piece = String.join("", Arrays.asList(words).subList(i, Math.min(i + 4, words.length)));
+                out.write(("data: " + responseFor(piece) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    // The prompts are built by GeminiService; the content keywords survive in them, so the heuristics still match
+    private String answer(String prompt, boolean json) throws IOException {
+        if (json) {
+            List<Quiz> quizzes = heuristics.generateQuiz(prompt, null);
+            return objectMapper.writeValueAsString(quizzes.stream()
+                    .map(quiz -> objectMapper.createObjectNode()
+                            .put("question", quiz.getQuestion())
+                            .put("answer", quiz.getAnswer())
+                            .set("options", objectMapper.valueToTree(quiz.getOptions())))
+                    .toList());
+        }
+        return prompt.startsWith("Summarize") ? heuristics.generateSummary(prompt) : heuristics.generateExplanation(prompt);
+    }
+
+    private String responseFor(String text) {
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode candidate = response.putArray("candidates").addObject();
+        candidate.putObject("content").put("role", "model").putArray("parts").addObject().put("text", text);
+        candidate.put("finishReason", "STOP");
+        return response.toString();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        server.stop(0);
+        executor.close();
+    }
+}
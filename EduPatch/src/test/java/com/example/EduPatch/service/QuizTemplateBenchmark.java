@@ -0,0 +1,120 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.GeneratedContent;
+import com.example.EduPatch.entity.Quiz;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per fallback quiz set ({@link HeuristicContentGenerator#generateQuiz}); read
+ * {@code gc.alloc.rate.norm} (bytes per set). The {@code old*} benchmarks run a copy of the generator as it
+ * was before the question templates were shared, for comparison.
+ * <p>
+ * Run after {@code mvn test-compile}, e.g. from the IDE, or with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.example.EduPatch.service.QuizTemplateBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizTemplateBenchmark {
+
+    private static final String TOPIC_CONTENT = "Photosynthesis converts light energy into chemical energy.";
+    private static final String GENERIC_CONTENT = "The industrial revolution changed how goods were produced.";
+
+    private TopicClassifier topicClassifier;
+    private HeuristicContentGenerator heuristics;
+
+    @Setup
+    public void setUp() throws IOException {
+        topicClassifier = new TopicClassifier();
+        ReflectionTestUtils.setField(topicClassifier, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(topicClassifier, "topicsFile", new ClassPathResource("heuristics/topics.json"));
+        topicClassifier.loadTopics();
+        heuristics = new HeuristicContentGenerator();
+        ReflectionTestUtils.setField(heuristics, "topicClassifier", topicClassifier);
+    }
+
+    @Benchmark
+    public List<Quiz> topicQuiz() {
+        return heuristics.generateQuiz(TOPIC_CONTENT, "page-1");
+    }
+
+    @Benchmark
+    public List<Quiz> genericQuiz() {
+        return heuristics.generateQuiz(GENERIC_CONTENT, "page-1");
+    }
+
+    @Benchmark
+    public List<Quiz> oldTopicQuiz() {
+        return oldGenerateQuiz(TOPIC_CONTENT, "page-1");
+    }
+
+    @Benchmark
+    public List<Quiz> oldGenericQuiz() {
+        return oldGenerateQuiz(GENERIC_CONTENT, "page-1");
+    }
+
+    // HeuristicContentGenerator.generateQuiz before the templates were shared: every option list is copied
+    private List<Quiz> oldGenerateQuiz(String content, String pageId) {
+        TopicClassifier.Topic topic = topicClassifier.classify(content);
+        if (topic != null) {
+            List<Quiz> quizzes = new ArrayList<>();
+            for (GeneratedContent.Question question : topic.quiz()) {
+                quizzes.add(oldCreateQuiz(pageId, question.question(), new ArrayList<>(question.options()), question.answer()));
+            }
+            return quizzes;
+        }
+        return Arrays.asList(
+            oldCreateQuiz(pageId, "What is the main topic discussed in this content?",
+                Arrays.asList("A. Basic principles", "B. Advanced concepts", "C. Practical applications", "D. All of the above"), "D"),
+            oldCreateQuiz(pageId, "Which aspect is most emphasized in this content?",
+                Arrays.asList("A. Historical context", "B. Scientific principles", "C. Mathematical formulas", "D. Experimental procedures"), "B"),
+            oldCreateQuiz(pageId, "What type of learning does this content support?",
+                Arrays.asList("A. Memorization only", "B. Conceptual understanding", "C. Practical skills", "D. Both B and C"), "D"),
+            oldCreateQuiz(pageId, "How does this content relate to real-world applications?",
+                Arrays.asList("A. No practical relevance", "B. Limited applications", "C. Broad practical significance", "D. Only theoretical importance"), "C"),
+            oldCreateQuiz(pageId, "What is the best approach to master this content?",
+                Arrays.asList("A. Rote memorization", "B. Understanding concepts and connections", "C. Skipping difficult parts", "D. Reading once"), "B")
+        );
+    }
+
+    private static Quiz oldCreateQuiz(String pageId, String question, List<String> options, String answer) {
+        Quiz quiz = new Quiz();
+        quiz.setPageId(pageId);
+        quiz.setQuestion(question);
+        quiz.setOptions(options);
+        quiz.setAnswer(answer);
+        return quiz;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QuizTemplateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
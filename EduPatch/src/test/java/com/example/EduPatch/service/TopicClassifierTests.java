@@ -0,0 +1,86 @@
+package com.example.EduPatch.service;
+
+import com.example.EduPatch.entity.Quiz;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TopicClassifierTests {
+
+    @Test
+    void findsOverlappingKeywordsThroughFailureLinks() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("he", "she", "his", "hers"));
+
+        assertEquals(bits(0, 1, 3), matcher.match("ushers"));
+        assertEquals(bits(0), matcher.match("ahe"));
+        assertEquals(bits(2), matcher.match("this"));
+    }
+
+    @Test
+    void ignoresCase() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("Photosynthesis", "atom"));
+
+        assertEquals(bits(0, 1), matcher.match("PHOTOSYNTHESIS and the Atom"));
+    }
+
+    @Test
+    void matchesKeywordsInsideWords() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("law", "atom", ""));
+
+        assertEquals(bits(0, 1), matcher.match("Newton's Laws and subatomic particles"));
+        assertEquals(bits(), matcher.match("No keyword here"));
+    }
+
+    @Test
+    void firstTopicInFileOrderWins() throws IOException {
+        TopicClassifier classifier = classifier(new ByteArrayResource("""
+                [
+                  {"name": "Motion", "keywords": ["newton", "law"]},
+                  {"name": "Newton", "keywords": ["newton"]}
+                ]""".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("Motion", classifier.classify("Newton's laws of motion").name());
+        assertEquals("Newton", classifier.classify("Isaac Newton").name());
+    }
+
+    @Test
+    void unknownContentFallsBackToTheGenericAnswers() throws IOException {
+        TopicClassifier classifier = classifier(new ClassPathResource("heuristics/topics.json"));
+        HeuristicContentGenerator heuristics = new HeuristicContentGenerator();
+        ReflectionTestUtils.setField(heuristics, "topicClassifier", classifier);
+        String content = "The industrial revolution changed how goods were produced.";
+
+        assertNull(classifier.classify(content));
+        List<Quiz> quiz = heuristics.generateQuiz(content, "page-1");
+        assertEquals(5, quiz.size());
+        assertEquals("What is the main topic discussed in this content?", quiz.get(0).getQuestion());
+        assertEquals("Mitosis", classifier.classify("Stages of MITOSIS").name());
+    }
+
+    private static TopicClassifier classifier(Resource topicsFile) throws IOException {
+        TopicClassifier classifier = new TopicClassifier();
+        ReflectionTestUtils.setField(classifier, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(classifier, "topicsFile", topicsFile);
+        classifier.loadTopics();
+        return classifier;
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int i : indexes) {
+            bits.set(i);
+        }
+        return bits;
+    }
+}